@@ -0,0 +1,112 @@
+package com.efrei.usermicroservice.benchmark;
+
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.utils.AuthMetrics;
+import com.efrei.usermicroservice.utils.JWTUtils;
+import com.efrei.usermicroservice.utils.JwtKeyRing;
+import com.efrei.usermicroservice.utils.SigningAlgorithm;
+import com.efrei.usermicroservice.utils.TestKeys;
+import com.efrei.usermicroservice.utils.TokenRevocationList;
+import com.efrei.usermicroservice.utils.TokenValidationCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jose4j.jwt.JwtClaims;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token signing, verification and JWKS publication for each supported signing algorithm, with a freshly
+ * generated key pair loaded from a key directory and the same token settings as application.properties.
+ * {@code validateJwt} is measured both through the validation cache and with a cache that keeps nothing,
+ * which is the cost of a token seen for the first time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    private String algorithm;
+
+    private Path keyDirectory;
+
+    private JwtKeyRing keyRing;
+
+    private JWTUtils cachingJwtUtils;
+
+    private JWTUtils uncachedJwtUtils;
+
+    private AppUser user;
+
+    private String token;
+
+    @Setup
+    public void setUp() throws IOException {
+        SigningAlgorithm signingAlgorithm = Arrays.stream(SigningAlgorithm.values())
+                .filter(candidate -> candidate.getIdentifier().equals(algorithm))
+                .findFirst()
+                .orElseThrow();
+        keyDirectory = Files.createTempDirectory("jwt-benchmark-keys");
+        TestKeys.write(keyDirectory, "k1", TestKeys.generate(signingAlgorithm));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuthMetrics authMetrics = new AuthMetrics(meterRegistry);
+        keyRing = TestKeys.keyRing(authMetrics, keyDirectory);
+        cachingJwtUtils = jwtUtils(new TokenValidationCache(10_000, 10, meterRegistry), authMetrics);
+        uncachedJwtUtils = jwtUtils(new TokenValidationCache(0, 10, meterRegistry), authMetrics);
+
+        user = new AppUser();
+        user.setId("3f1d1c2e-6a43-4a53-9a1e-2a3c5b6d7e8f");
+        user.setEmail("benchmark@example.com");
+        user.setUserRole(UserRole.CUSTOMER);
+        token = cachingJwtUtils.createJWT(user);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var keyFiles = Files.list(keyDirectory)) {
+            for (Path keyFile : keyFiles.toList()) {
+                Files.delete(keyFile);
+            }
+        }
+        Files.delete(keyDirectory);
+    }
+
+    private JWTUtils jwtUtils(TokenValidationCache tokenValidationCache, AuthMetrics authMetrics) {
+        return new JWTUtils(keyRing, tokenValidationCache, new TokenRevocationList(100_000, 0.01), authMetrics,
+                "UserMicroservice", "OtherMicroservices", 15, 30);
+    }
+
+    @Benchmark
+    public String createJwt() {
+        return cachingJwtUtils.createJWT(user);
+    }
+
+    @Benchmark
+    public JwtClaims validateJwtCached() {
+        return cachingJwtUtils.validateJwt(token);
+    }
+
+    @Benchmark
+    public JwtClaims validateJwtUncached() {
+        return uncachedJwtUtils.validateJwt(token);
+    }
+
+    @Benchmark
+    public String createJwks() {
+        return cachingJwtUtils.createJwks();
+    }
+
+    /**
+     * PEM parsing and key ring construction, paid at startup and on every scheduled reload.
+     */
+    @Benchmark
+    public JwtKeyRing loadKeyRing() {
+        return TestKeys.keyRing(new AuthMetrics(new SimpleMeterRegistry()), keyDirectory);
+    }
+}
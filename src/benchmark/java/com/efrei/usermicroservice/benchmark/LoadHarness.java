@@ -0,0 +1,351 @@
+package com.efrei.usermicroservice.benchmark;
+
+import com.efrei.usermicroservice.UsermicroserviceApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end load test: boots the application against an embedded Postgres, seeds users, then drives a mix of
+ * logins, reads and user creations at a fixed arrival rate and reports throughput and latency percentiles.
+ * Requests are sent open-loop and latencies are measured from their scheduled start, so a stalled server shows up
+ * in the percentiles instead of silently lowering the rate.
+ * <p>
+ * Options, as {@code --name=value}: {@code rate} (requests per second), {@code duration} and {@code warmup}
+ * (seconds), {@code users}, {@code mix} ({@code login=10,read=80,write=10}), {@code max-error-rate},
+ * {@code max-p99-ms} (0 disables the check) and {@code report} (JSON output file). Any other argument goes to the
+ * application. The process exits with 1 when a threshold is exceeded, so the run can gate a merge.
+ * <p>
+ * {@code thread-models} ({@code platform,virtual}) and {@code pool-sizes} ({@code 10,20,50}) repeat the same load
+ * for every combination, each against a fresh database and application, and print them side by side with the
+ * peak number of busy and awaited Hikari connections, which is what the pool should be sized from.
+ */
+public class LoadHarness {
+
+    private enum Operation { LOGIN, READ, WRITE }
+
+    private record RunResult(String label, int poolSize, boolean passed, double throughput, double errorRate,
+                             double p50, double p99, double p999, int peakActive, int peakWaiting, String json) {}
+
+    private static final String PASSWORD = "load-test-password";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Map<String, String> options;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final Map<Operation, List<Long>> latencies = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+
+    private final AtomicLong createdUsers = new AtomicLong();
+
+    private final List<String> userIds = new ArrayList<>();
+
+    private final List<String> userTokens = new ArrayList<>();
+
+    private String baseUrl;
+
+    private HikariPoolMXBean pool;
+
+    private volatile int peakActive;
+
+    private volatile int peakWaiting;
+
+    private LoadHarness(Map<String, String> options) {
+        this.options = options;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, Collections.synchronizedList(new ArrayList<>()));
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(Map.of(
+                "rate", "50", "duration", "30", "warmup", "5", "users", "20",
+                "mix", "login=10,read=80,write=10", "max-error-rate", "0.01", "max-p99-ms", "0", "report", ""));
+        options.putAll(Map.of("thread-models", "", "pool-sizes", ""));
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option.length == 2 && options.containsKey(option[0])) {
+                options.put(option[0], option[1]);
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+
+        List<String> threadModels = split(options.get("thread-models"));
+        List<String> poolSizes = split(options.get("pool-sizes"));
+        if (threadModels.contains("virtual") && Runtime.version().feature() < 21) {
+            System.out.printf("WARNING: Java %d has no virtual threads, the \"virtual\" runs use platform threads%n",
+                    Runtime.version().feature());
+        }
+        List<RunResult> results = new ArrayList<>();
+        for (String threadModel : threadModels) {
+            for (String poolSize : poolSizes) {
+                List<String> runArgs = new ArrayList<>(applicationArgs);
+                String label = "configured";
+                if (threadModel != null) {
+                    if (!threadModel.equals("platform") && !threadModel.equals("virtual")) {
+                        throw new IllegalArgumentException("Unknown thread model: " + threadModel);
+                    }
+                    runArgs.add("--spring.threads.virtual.enabled=" + threadModel.equals("virtual"));
+                    label = threadModel;
+                }
+                if (poolSize != null) {
+                    runArgs.add("--spring.datasource.hikari.maximum-pool-size=" + poolSize);
+                }
+                results.add(runOnce(options, runArgs, label));
+            }
+        }
+
+        if (results.size() > 1) {
+            compare(results);
+        }
+        if (!options.get("report").isEmpty()) {
+            Files.writeString(Path.of(options.get("report")), results.size() == 1 ? results.get(0).json()
+                    : results.stream().map(RunResult::json).collect(Collectors.joining(",", "[", "]")));
+        }
+        System.exit(results.stream().allMatch(RunResult::passed) ? 0 : 1);
+    }
+
+    private static RunResult runOnce(Map<String, String> options, List<String> runArgs, String label) throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            List<String> applicationArgs = new ArrayList<>(runArgs);
+            applicationArgs.addAll(List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=",
+                    "--server.port=0",
+                    // the harness sends everything from one address and reuses a few accounts
+                    "--login.rate-limit.email.capacity=1000000",
+                    "--login.rate-limit.email.refill-per-minute=1000000",
+                    "--login.rate-limit.ip.capacity=1000000",
+                    "--login.rate-limit.ip.refill-per-minute=1000000",
+                    "--logging.level.root=WARN"));
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(UsermicroserviceApplication.class)
+                    .run(applicationArgs.toArray(String[]::new));
+            try {
+                LoadHarness harness = new LoadHarness(options);
+                harness.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                HikariDataSource dataSource = context.getBean(DataSource.class).unwrap(HikariDataSource.class);
+                System.out.printf("%n== %s threads, %d connections%n", label, dataSource.getMaximumPoolSize());
+                return harness.run(label, dataSource);
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private RunResult run(String label, HikariDataSource dataSource) throws Exception {
+        seed(Integer.parseInt(options.get("users")));
+        pool = dataSource.getHikariPoolMXBean();
+
+        double rate = Double.parseDouble(options.get("rate"));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+        Operation[] mix = parseMix(options.get("mix"));
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+
+        System.out.printf("Load: %.0f req/s for %ds after %ds of warm-up, mix %s%n", rate,
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos), TimeUnit.NANOSECONDS.toSeconds(warmupNanos), options.get("mix"));
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        Thread sampler = null;
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        for (long i = 0; ; i++) {
+            long scheduledAt = start + i * intervalNanos;
+            if (scheduledAt >= end) {
+                break;
+            }
+            long wait = scheduledAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = mix[ThreadLocalRandom.current().nextInt(mix.length)];
+            boolean measured = scheduledAt >= measureFrom;
+            if (measured && sampler == null) {
+                sampler = new Thread(this::samplePool, "pool-sampler");
+                sampler.setDaemon(true);
+                sampler.start();
+            }
+            inFlight.add(send(operation, scheduledAt, measured));
+            inFlight.removeIf(CompletableFuture::isDone);
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).get(1, TimeUnit.MINUTES);
+        if (sampler != null) {
+            sampler.interrupt();
+            sampler.join();
+        }
+
+        return report(label, dataSource.getMaximumPoolSize(), TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+    }
+
+    // every millisecond over the measured window, much shorter than a query holding a connection
+    private void samplePool() {
+        while (!Thread.currentThread().isInterrupted()) {
+            peakActive = Math.max(peakActive, pool.getActiveConnections());
+            peakWaiting = Math.max(peakWaiting, pool.getThreadsAwaitingConnection());
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private CompletableFuture<Void> send(Operation operation, long scheduledAt, boolean measured) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(userIds.size());
+        HttpRequest request = switch (operation) {
+            case LOGIN -> post("/login", Map.of("email", email(user), "password", PASSWORD)).build();
+            case READ -> HttpRequest.newBuilder(URI.create(baseUrl + "/user/" + userIds.get(user)))
+                    .header("Authorization", "Bearer " + userTokens.get(random.nextInt(userTokens.size())))
+                    .GET().build();
+            case WRITE -> post("/user", Map.of("role", "CUSTOMER",
+                    "email", "load-created-" + createdUsers.incrementAndGet() + "@example.com", "password", PASSWORD)).build();
+        };
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    if (measured) {
+                        latencies.get(operation).add(System.nanoTime() - scheduledAt);
+                        if (failure != null || response.statusCode() >= 300) {
+                            errors.get(operation).incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    private void seed(int users) throws IOException, InterruptedException {
+        for (int user = 0; user < users; user++) {
+            JsonNode created = call(post("/user", Map.of("role", "CUSTOMER", "email", email(user), "password", PASSWORD)));
+            userIds.add(created.get("id").asText());
+            userTokens.add(call(post("/login", Map.of("email", email(user), "password", PASSWORD))).get("token").asText());
+        }
+    }
+
+    private RunResult report(String label, int poolSize, long durationSeconds) {
+        double maxErrorRate = Double.parseDouble(options.get("max-error-rate"));
+        double maxP99Millis = Double.parseDouble(options.get("max-p99-ms"));
+        boolean passed = true;
+        long totalCount = 0;
+        long totalErrors = 0;
+        StringBuilder json = new StringBuilder("{\"durationSeconds\":").append(durationSeconds).append(",\"operations\":{");
+
+        System.out.printf("%-6s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "op", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            long[] sorted = latencies.get(operation).stream().mapToLong(Long::longValue).sorted().toArray();
+            long errorCount = errors.get(operation).get();
+            totalCount += sorted.length;
+            totalErrors += errorCount;
+            double throughput = (double) sorted.length / durationSeconds;
+            double p50 = percentile(sorted, 0.50);
+            double p90 = percentile(sorted, 0.90);
+            double p99 = percentile(sorted, 0.99);
+            double p999 = percentile(sorted, 0.999);
+            double max = percentile(sorted, 1);
+            System.out.printf("%-6s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.name().toLowerCase(), sorted.length, errorCount, throughput, p50, p90, p99, p999, max);
+            if (maxP99Millis > 0 && p99 > maxP99Millis) {
+                System.out.printf("FAILED: %s p99 %.2f ms above %.2f ms%n", operation.name().toLowerCase(), p99, maxP99Millis);
+                passed = false;
+            }
+            json.append(operation.ordinal() == 0 ? "" : ",")
+                    .append(String.format(Locale.ROOT,
+                            "\"%s\":{\"count\":%d,\"errors\":%d,\"throughput\":%.2f,\"p50\":%.3f,\"p90\":%.3f,\"p99\":%.3f,\"p999\":%.3f,\"max\":%.3f}",
+                            operation.name().toLowerCase(), sorted.length, errorCount, throughput, p50, p90, p99, p999, max));
+        }
+        double errorRate = totalCount == 0 ? 1 : (double) totalErrors / totalCount;
+        System.out.printf("total  %8d %7d %9.1f  error rate %.4f%n", totalCount, totalErrors, (double) totalCount / durationSeconds, errorRate);
+        if (errorRate > maxErrorRate) {
+            System.out.printf("FAILED: error rate %.4f above %.4f%n", errorRate, maxErrorRate);
+            passed = false;
+        }
+
+        System.out.printf("pool   %d connections, peak %d busy, peak %d callers waiting%n", poolSize, peakActive, peakWaiting);
+
+        long[] all = latencies.values().stream().flatMap(List::stream).mapToLong(Long::longValue).sorted().toArray();
+        json.append(String.format(Locale.ROOT,
+                "},\"threads\":\"%s\",\"poolSize\":%d,\"peakActive\":%d,\"peakWaiting\":%d,\"errorRate\":%.5f,\"passed\":%b}",
+                label, poolSize, peakActive, peakWaiting, errorRate, passed));
+        return new RunResult(label, poolSize, passed, (double) totalCount / durationSeconds, errorRate,
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), peakActive, peakWaiting, json.toString());
+    }
+
+    private static void compare(List<RunResult> results) {
+        System.out.printf("%n%-9s %5s %9s %9s %9s %9s %9s %7s %8s%n",
+                "threads", "pool", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "busy", "waiting");
+        for (RunResult result : results) {
+            System.out.printf(Locale.ROOT, "%-9s %5d %9.1f %9.4f %9.2f %9.2f %9.2f %7d %8d%n",
+                    result.label(), result.poolSize(), result.throughput(), result.errorRate(),
+                    result.p50(), result.p99(), result.p999(), result.peakActive(), result.peakWaiting());
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static Operation[] parseMix(String mix) {
+        List<Operation> weighted = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] weight = part.trim().split("=");
+            Operation operation = Operation.valueOf(weight[0].trim().toUpperCase());
+            weighted.addAll(Collections.nCopies(Integer.parseInt(weight[1].trim()), operation));
+        }
+        return weighted.toArray(Operation[]::new);
+    }
+
+    // an empty list option stands for a single run with the application's own setting
+    private static List<String> split(String option) {
+        return option.isBlank() ? Collections.singletonList(null) : Arrays.stream(option.split(",")).map(String::trim).toList();
+    }
+
+    private static String email(int user) {
+        return "load-user-" + user + "@example.com";
+    }
+
+    private HttpRequest.Builder post(String path, Map<String, String> body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(OBJECT_MAPPER.writeValueAsString(body)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private JsonNode call(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(response.statusCode() + " " + response.body());
+        }
+        return OBJECT_MAPPER.readTree(response.body());
+    }
+}
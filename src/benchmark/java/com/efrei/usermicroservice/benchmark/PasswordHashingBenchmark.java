@@ -0,0 +1,47 @@
+package com.efrei.usermicroservice.benchmark;
+
+import com.efrei.usermicroservice.utils.AuthMetrics;
+import com.efrei.usermicroservice.utils.PasswordHashingEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One hash or verification through {@link PasswordHashingEngine}, pool hand-off included,
+ * with the work factors of application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordHashingBenchmark {
+
+    @Param({"argon2id", "bcrypt"})
+    public String algorithm;
+
+    private PasswordHashingEngine passwordHashingEngine;
+
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        passwordHashingEngine = new PasswordHashingEngine(new AuthMetrics(new SimpleMeterRegistry()),
+                algorithm, 19456, 2, 1, 10, 1, 64, 1);
+        storedHash = passwordHashingEngine.hash("correct horse battery staple");
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHashingEngine.shutdown();
+    }
+
+    @Benchmark
+    public String hash() {
+        return passwordHashingEngine.hash("correct horse battery staple");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return passwordHashingEngine.verify("correct horse battery staple", storedHash);
+    }
+}
@@ -0,0 +1,211 @@
+package com.efrei.usermicroservice.faststart;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.*;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the fast-start layout of the application and reports the time to the first successful login.
+ * <p>
+ * The executable jar is unpacked into {@code application.jar} (classes, AOT-generated code and resources, with a
+ * {@code Class-Path} manifest) next to {@code lib/}, the layout class data sharing needs since it cannot archive
+ * classes loaded from nested jars. A training run of that layout writes {@code application.jsa} when it exits.
+ * <p>
+ * Three runs are then timed against an embedded Postgres, from the process start to readiness and to the first
+ * successful {@code POST /login}: the plain jar with {@code ddl-auto}, the training run, and the fast-start layout
+ * with AOT and the CDS archive. The database already holds the schema and the user in every timed run, as it
+ * would for a pod added by the autoscaler.
+ * <p>
+ * Arguments: the executable jar and the output directory.
+ */
+public class FastStartProbe {
+
+    private static final String MAIN_CLASS = "com.efrei.usermicroservice.UsermicroserviceApplication";
+
+    private static final String ARCHIVE = "application.jsa";
+
+    private static final String LOGIN_BODY = "{\"email\":\"fast-start@example.com\",\"password\":\"fast-start\"}";
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(3);
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private record Timing(String run, long readyMillis, long firstLoginMillis) {}
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(args[0]).toAbsolutePath();
+        Path outputDirectory = Path.of(args[1]).toAbsolutePath();
+        Path applicationDirectory = outputDirectory.resolve("app");
+        new FastStartProbe().run(jar, outputDirectory, applicationDirectory);
+    }
+
+    private void run(Path jar, Path outputDirectory, Path applicationDirectory) throws Exception {
+        unpack(jar, applicationDirectory);
+        Files.deleteIfExists(applicationDirectory.resolve(ARCHIVE));
+
+        List<Timing> timings = new ArrayList<>();
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            String plainUrl = createDatabase(postgres, "plain_start");
+            String fastUrl = createDatabase(postgres, "fast_start");
+
+            // first run of each layout creates the schema and the user, it is not reported
+            start(jar.getParent(), List.of("-jar", jar.toString()), plainUrl, "plain jar, schema creation");
+            timings.add(start(jar.getParent(), List.of("-jar", jar.toString()), plainUrl, "plain jar (ddl-auto)"));
+            timings.add(start(applicationDirectory, List.of("-XX:ArchiveClassesAtExit=" + ARCHIVE,
+                    "-Dspring.aot.enabled=true", "-jar", "application.jar", "--spring.profiles.active=fast"),
+                    fastUrl, "fast-start training (AOT, CDS dump)"));
+            timings.add(start(applicationDirectory, List.of("-XX:SharedArchiveFile=" + ARCHIVE,
+                    "-Dspring.aot.enabled=true", "-jar", "application.jar", "--spring.profiles.active=fast"),
+                    fastUrl, "fast-start (AOT, CDS, Flyway)"));
+        }
+
+        String report = timings.stream()
+                .map(timing -> String.format("%-40s ready %6d ms   first login %6d ms",
+                        timing.run(), timing.readyMillis(), timing.firstLoginMillis()))
+                .collect(Collectors.joining(System.lineSeparator(), "Time to first successful login" + System.lineSeparator(), System.lineSeparator()));
+        System.out.print(report);
+        Files.writeString(outputDirectory.resolve("startup-report.txt"), report);
+        if (!Files.exists(applicationDirectory.resolve(ARCHIVE))) {
+            throw new IllegalStateException("The training run did not produce " + ARCHIVE);
+        }
+    }
+
+    private Timing start(Path workingDirectory, List<String> javaArgs, String jdbcUrl, String run) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(javaArgs);
+        command.addAll(List.of("--server.port=" + port,
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--management.endpoint.health.probes.enabled=true",
+                "--login.rate-limit.email.capacity=1000",
+                "--logging.level.root=WARN"));
+
+        Path log = workingDirectory.resolve(run.replaceAll("\\W+", "-") + ".log");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(workingDirectory.toFile())
+                .redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            String baseUrl = "http://localhost:" + port;
+            awaitStatus(process, HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/readiness")).GET().build(), log);
+            long ready = System.nanoTime();
+            HttpRequest login = HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(LOGIN_BODY)).build();
+            if (send(login) != 200) {
+                send(HttpRequest.newBuilder(URI.create(baseUrl + "/user"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(LOGIN_BODY.replace("{", "{\"role\":\"CUSTOMER\","))).build());
+            }
+            awaitStatus(process, login, log);
+            long firstLogin = System.nanoTime();
+            return new Timing(run, (ready - start) / 1_000_000, (firstLogin - start) / 1_000_000);
+        } finally {
+            // a regular shutdown, the CDS archive is written on the way out
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private void awaitStatus(Process process, HttpRequest request, Path log) throws Exception {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The application exited, see " + log);
+            }
+            if (send(request) == 200) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException("No 200 from " + request.uri() + " within " + TIMEOUT + ", see " + log);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (ConnectException e) {
+            return -1;
+        }
+    }
+
+    private static String createDatabase(EmbeddedPostgres postgres, String name) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + name);
+        }
+        return postgres.getJdbcUrl("postgres", name);
+    }
+
+    /**
+     * Spring Boot 3.3 has {@code -Djarmode=tools extract} for this, the same layout is built by hand here.
+     */
+    private static void unpack(Path jar, Path applicationDirectory) throws IOException {
+        Path libDirectory = applicationDirectory.resolve("lib");
+        Files.createDirectories(libDirectory);
+        List<String> classPath = new ArrayList<>();
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, MAIN_CLASS);
+        try (JarFile executableJar = new JarFile(jar.toFile())) {
+            Enumeration<JarEntry> entries = executableJar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith("BOOT-INF/lib/")) {
+                    String fileName = entry.getName().substring("BOOT-INF/lib/".length());
+                    try (InputStream inputStream = executableJar.getInputStream(entry)) {
+                        Files.copy(inputStream, libDirectory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    classPath.add("lib/" + fileName);
+                }
+            }
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, String.join(" ", classPath));
+
+            try (OutputStream outputStream = Files.newOutputStream(applicationDirectory.resolve("application.jar"));
+                 JarOutputStream applicationJar = new JarOutputStream(outputStream, manifest)) {
+                entries = executableJar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName().replaceFirst("^BOOT-INF/classes/", "");
+                    if (name.equals(entry.getName()) || name.isEmpty()) {
+                        continue;
+                    }
+                    // directory entries included, Flyway looks its migrations up by directory
+                    applicationJar.putNextEntry(new JarEntry(name));
+                    if (!entry.isDirectory()) {
+                        try (InputStream inputStream = executableJar.getInputStream(entry)) {
+                            inputStream.transferTo(applicationJar);
+                        }
+                    }
+                    applicationJar.closeEntry();
+                }
+            }
+        }
+    }
+}
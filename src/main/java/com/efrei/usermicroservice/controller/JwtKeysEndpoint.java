@@ -0,0 +1,44 @@
+package com.efrei.usermicroservice.controller;
+
+import com.efrei.usermicroservice.utils.JwtKeyRing;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Admin endpoint to inspect the key ring and rotate keys on demand without restarting the service.
+ * Like every actuator endpoint except health it is not exposed over HTTP unless
+ * {@code management.endpoints.web.exposure.include} lists it.
+ */
+@Component
+@Endpoint(id = "jwtkeys")
+public class JwtKeysEndpoint {
+
+    JwtKeyRing keyRing;
+
+    public JwtKeysEndpoint(JwtKeyRing keyRing) {
+        this.keyRing = keyRing;
+    }
+
+    @ReadOperation
+    public Map<String, Object> keys() {
+        return describe(keyRing.getKeyRing());
+    }
+
+    @WriteOperation
+    public Map<String, Object> reload() {
+        return describe(keyRing.reload());
+    }
+
+    private Map<String, Object> describe(JwtKeyRing.KeyRing keyRing) {
+        return Map.of(
+                "signingKid", keyRing.signingKey().getKid(),
+                "signingAlgorithm", keyRing.signingKey().getAlgorithm().getIdentifier(),
+                "verificationKids", keyRing.verificationKeys().keySet(),
+                "version", keyRing.version(),
+                "loadedAt", keyRing.loadedAt().toString());
+    }
+}
@@ -1,63 +1,145 @@
 package com.efrei.usermicroservice.controller;
 
 import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.model.dto.ImportRowResult;
 import com.efrei.usermicroservice.model.dto.LoginAttempt;
 import com.efrei.usermicroservice.model.dto.LoginResponse;
+import com.efrei.usermicroservice.model.dto.RefreshRequest;
+import com.efrei.usermicroservice.model.dto.UserBatchRequest;
+import com.efrei.usermicroservice.model.dto.UserLookupResult;
+import com.efrei.usermicroservice.model.dto.UserPage;
 import com.efrei.usermicroservice.model.dto.UserToCreate;
+import com.efrei.usermicroservice.security.AuthenticatedUser;
+import com.efrei.usermicroservice.security.RequiresRole;
+import com.efrei.usermicroservice.service.UserImportService;
 import com.efrei.usermicroservice.service.UserServiceImpl;
 import com.efrei.usermicroservice.utils.JWTUtils;
+import com.efrei.usermicroservice.utils.JwksDocument;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
+@Profile("!reactive")
 public class UserController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     UserServiceImpl userService;
 
+    UserImportService userImportService;
+
     JWTUtils jwtUtils;
 
-    public UserController(UserServiceImpl userService, JWTUtils jwtUtils) {
+    CacheControl jwksCacheControl;
+
+    public UserController(UserServiceImpl userService, UserImportService userImportService, JWTUtils jwtUtils,
+                          @Value("${jwt.jwks.max-age-seconds}") long jwksMaxAgeSeconds) {
         this.userService = userService;
+        this.userImportService = userImportService;
         this.jwtUtils = jwtUtils;
+        this.jwksCacheControl = CacheControl.maxAge(jwksMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
     }
 
     @PostMapping("/user")
-    public AppUser createUser(@RequestBody UserToCreate userToCreate){
-        return userService.createUser(userToCreate);
+    public AppUser createUser(Optional<AuthenticatedUser> authenticatedUser, @RequestBody UserToCreate userToCreate){
+        return userService.createUser(authenticatedUser.orElse(null), userToCreate);
     }
 
     @PostMapping("/login")
-    public LoginResponse getJwt(@RequestBody LoginAttempt loginAttempt) {
-        return userService.login(loginAttempt);
+    public LoginResponse getJwt(@RequestBody LoginAttempt loginAttempt, HttpServletRequest request) {
+        return userService.login(loginAttempt, request.getRemoteAddr());
+    }
+
+    @PostMapping("/token/refresh")
+    public LoginResponse refreshJwt(@RequestBody RefreshRequest refreshRequest) {
+        return userService.refresh(refreshRequest.refreshToken());
+    }
+
+    @PostMapping("/logout")
+    public void logout(AuthenticatedUser authenticatedUser) {
+        userService.logout(authenticatedUser);
     }
 
     @GetMapping("/public_key")
-    public String getJwk() {
-        return jwtUtils.createJwks();
+    public ResponseEntity<byte[]> getJwk() {
+        // Spring answers 304 Not Modified on its own when If-None-Match matches the ETag
+        JwksDocument jwks = jwtUtils.getJwksDocument();
+        return ResponseEntity.ok()
+                .eTag(jwks.etag())
+                .cacheControl(jwksCacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jwks.json());
     }
 
     @GetMapping("/user/{userId}")
-    public AppUser getUser(@RequestHeader(name = "Authorization") String bearerToken,
-                           @PathVariable String userId) {
-        return userService.getUserById(bearerToken, userId);
+    @RequiresRole({UserRole.CUSTOMER, UserRole.AGENT})
+    public AppUser getUser(@PathVariable String userId) {
+        return userService.getUserById(userId);
+    }
+
+    @PostMapping("/users/batch")
+    @RequiresRole({UserRole.CUSTOMER, UserRole.AGENT})
+    public List<UserLookupResult> getUsersByIds(@RequestBody UserBatchRequest userBatchRequest) {
+        return userService.getUsersByIds(userBatchRequest.ids());
+    }
+
+    @PostMapping(value = "/users/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @RequiresRole(UserRole.AGENT)
+    public List<ImportRowResult> importUsersFromJson(InputStream body) {
+        return userImportService.importJson(body);
+    }
+
+    @PostMapping(value = "/users/import", consumes = TEXT_CSV_VALUE)
+    @RequiresRole(UserRole.AGENT)
+    public List<ImportRowResult> importUsersFromCsv(InputStream body) {
+        return userImportService.importCsv(body);
     }
 
     @GetMapping("/user")
-    public List<AppUser> getAllUsers(@RequestHeader(name = "Authorization") String bearerToken) {
-        return userService.getAllUser(bearerToken);
+    @RequiresRole(UserRole.AGENT)
+    public ResponseEntity<List<AppUser>> getAllUsers(@RequestParam(name = "cursor", required = false) String cursor,
+                                                     @RequestParam(name = "size", required = false) Integer size) {
+        UserPage userPage = userService.getUsersPage(cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (userPage.nextCursor() != null) {
+            // the body stays a plain array, the continuation token travels in a header
+            response.header(NEXT_CURSOR_HEADER, userPage.nextCursor());
+        }
+        return response.body(userPage.users());
+    }
+
+    @GetMapping(value = "/user", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @RequiresRole(UserRole.AGENT)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(userService.streamAllUsers());
     }
 
     @PutMapping("/user/{userId}")
-    public AppUser modifyUser(@RequestHeader(name = "Authorization") String bearerToken,
+    public AppUser modifyUser(AuthenticatedUser authenticatedUser,
                               @PathVariable String userId,
                               @RequestBody UserToCreate userToCreate) {
-        return userService.modifyUser(bearerToken, userId, userToCreate);
+        return userService.modifyUser(authenticatedUser, userId, userToCreate);
     }
 
     @DeleteMapping("/user/{userId}")
-    public void deleteUser(@RequestHeader(name = "Authorization") String bearerToken,
+    public void deleteUser(AuthenticatedUser authenticatedUser,
                            @PathVariable String userId) {
-        userService.deleteUser(bearerToken, userId);
+        userService.deleteUser(authenticatedUser, userId);
     }
 
 
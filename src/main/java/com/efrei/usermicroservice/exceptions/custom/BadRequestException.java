@@ -0,0 +1,7 @@
+package com.efrei.usermicroservice.exceptions.custom;
+
+public class BadRequestException extends UserMicroserviceException {
+    public BadRequestException(String message) {
+        super(ErrorCode.BAD_REQUEST, message);
+    }
+}
@@ -1,7 +1,9 @@
 package com.efrei.usermicroservice.exceptions.custom;
 
-public class EmailAlreadyExistingException extends RuntimeException {
-    public EmailAlreadyExistingException(String message) {
-        super(message);
+public class EmailAlreadyExistingException extends UserMicroserviceException {
+    public static final EmailAlreadyExistingException INSTANCE = new EmailAlreadyExistingException();
+
+    private EmailAlreadyExistingException() {
+        super(ErrorCode.EMAIL_ALREADY_EXISTS, "Un utilisateur avec cette adresse email existe déjà.");
     }
 }
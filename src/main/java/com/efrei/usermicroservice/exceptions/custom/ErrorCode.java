@@ -0,0 +1,79 @@
+package com.efrei.usermicroservice.exceptions.custom;
+
+import org.springframework.http.HttpStatus;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stable code of an error response and its HTTP status. Clients branch on the code, the detail is meant for humans
+ * and may change. Bodies follow RFC 7807 with the code as an extension member.
+ */
+public enum ErrorCode {
+    INVALID_CREDENTIALS("invalid-credentials", HttpStatus.UNAUTHORIZED, false),
+    INVALID_TOKEN("invalid-token", HttpStatus.UNAUTHORIZED, true),
+    EXPIRED_TOKEN("expired-token", HttpStatus.UNAUTHORIZED, true),
+    AUTHENTICATION_REQUIRED("authentication-required", HttpStatus.UNAUTHORIZED, true),
+    INVALID_REFRESH_TOKEN("invalid-refresh-token", HttpStatus.UNAUTHORIZED, false),
+    FORBIDDEN("forbidden", HttpStatus.FORBIDDEN, false),
+    USER_NOT_FOUND("user-not-found", HttpStatus.NOT_FOUND, false),
+    EMAIL_ALREADY_EXISTS("email-already-exists", HttpStatus.CONFLICT, false),
+    BAD_REQUEST("bad-request", HttpStatus.BAD_REQUEST, false),
+    TOO_MANY_REQUESTS("too-many-requests", HttpStatus.TOO_MANY_REQUESTS, false),
+    INTERNAL_ERROR("internal-error", HttpStatus.INTERNAL_SERVER_ERROR, false);
+
+    private final String code;
+
+    private final HttpStatus status;
+
+    private final boolean bearerChallenge;
+
+    ErrorCode(String code, HttpStatus status, boolean bearerChallenge) {
+        this.code = code;
+        this.status = status;
+        this.bearerChallenge = bearerChallenge;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether the response carries {@code WWW-Authenticate: Bearer}, i.e. the caller should come back with a token.
+     */
+    public boolean isBearerChallenge() {
+        return bearerChallenge;
+    }
+
+    byte[] problemBody(String detail) {
+        StringBuilder json = new StringBuilder(160)
+                .append("{\"type\":\"about:blank\",\"title\":\"").append(status.getReasonPhrase())
+                .append("\",\"status\":").append(status.value())
+                .append(",\"detail\":\"");
+        appendEscaped(json, detail == null ? "" : detail);
+        return json.append("\",\"code\":\"").append(code).append("\"}").toString().getBytes(UTF_8);
+    }
+
+    private static void appendEscaped(StringBuilder json, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
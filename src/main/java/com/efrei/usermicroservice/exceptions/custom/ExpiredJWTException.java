@@ -1,7 +1,9 @@
 package com.efrei.usermicroservice.exceptions.custom;
 
-public class ExpiredJWTException extends RuntimeException {
-    public ExpiredJWTException(String message) {
-        super(message);
+public class ExpiredJWTException extends JWTException {
+    public static final ExpiredJWTException INSTANCE = new ExpiredJWTException();
+
+    private ExpiredJWTException() {
+        super(ErrorCode.EXPIRED_TOKEN, "JWT expiré, essayez d'en avoir un nouveau en vous logguant à nouveau");
     }
-}
\ No newline at end of file
+}
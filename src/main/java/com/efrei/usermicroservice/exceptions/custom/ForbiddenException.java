@@ -0,0 +1,7 @@
+package com.efrei.usermicroservice.exceptions.custom;
+
+public class ForbiddenException extends UserMicroserviceException {
+    public ForbiddenException(String message) {
+        super(ErrorCode.FORBIDDEN, message);
+    }
+}
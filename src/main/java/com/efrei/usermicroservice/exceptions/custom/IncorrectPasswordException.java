@@ -1,7 +1,12 @@
 package com.efrei.usermicroservice.exceptions.custom;
 
-public class IncorrectPasswordException extends RuntimeException {
-    public IncorrectPasswordException(String message) {
-        super(message);
+/**
+ * Wrong password or unknown email: both get the same answer, so that a login does not reveal which accounts exist.
+ */
+public class IncorrectPasswordException extends UserMicroserviceException {
+    public static final IncorrectPasswordException INSTANCE = new IncorrectPasswordException();
+
+    private IncorrectPasswordException() {
+        super(ErrorCode.INVALID_CREDENTIALS, "Email ou mot de passe incorrect");
     }
 }
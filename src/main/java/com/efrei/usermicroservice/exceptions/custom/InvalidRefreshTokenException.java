@@ -0,0 +1,12 @@
+package com.efrei.usermicroservice.exceptions.custom;
+
+public class InvalidRefreshTokenException extends UserMicroserviceException {
+    public static final InvalidRefreshTokenException MISSING = new InvalidRefreshTokenException("Refresh token manquant");
+
+    public static final InvalidRefreshTokenException INVALID =
+            new InvalidRefreshTokenException("Refresh token invalide ou expiré, essayez de vous logguer à nouveau");
+
+    private InvalidRefreshTokenException(String message) {
+        super(ErrorCode.INVALID_REFRESH_TOKEN, message);
+    }
+}
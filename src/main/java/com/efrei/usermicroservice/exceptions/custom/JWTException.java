@@ -1,10 +1,25 @@
 package com.efrei.usermicroservice.exceptions.custom;
 
-public class JWTException extends RuntimeException {
+/**
+ * A rejected token ({@link #INVALID}, {@link #REVOKED}, {@link ExpiredJWTException}) is a 401, the public
+ * constructors are for key and signing failures on our side.
+ */
+public class JWTException extends UserMicroserviceException {
+    public static final JWTException INVALID =
+            new JWTException(ErrorCode.INVALID_TOKEN, "JWT invalide, essayez de vous logguer à nouveau");
+
+    public static final JWTException REVOKED =
+            new JWTException(ErrorCode.INVALID_TOKEN, "JWT révoqué, essayez de vous logguer à nouveau");
+
     public JWTException(String message) {
         super(message);
     }
+
     public JWTException(String message, Exception e) {
         super(message, e);
     }
-}
\ No newline at end of file
+
+    protected JWTException(ErrorCode errorCode, String message) {
+        super(errorCode, message);
+    }
+}
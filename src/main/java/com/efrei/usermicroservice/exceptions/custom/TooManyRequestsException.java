@@ -0,0 +1,14 @@
+package com.efrei.usermicroservice.exceptions.custom;
+
+public class TooManyRequestsException extends UserMicroserviceException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(ErrorCode.TOO_MANY_REQUESTS, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,13 @@
+package com.efrei.usermicroservice.exceptions.custom;
+
+public class UnauthorizedException extends UserMicroserviceException {
+    public static final UnauthorizedException AUTHENTICATION_REQUIRED =
+            new UnauthorizedException(ErrorCode.AUTHENTICATION_REQUIRED, "Authentification requise, fournissez un jeton Bearer");
+
+    public static final UnauthorizedException MALFORMED_HEADER =
+            new UnauthorizedException(ErrorCode.INVALID_TOKEN, "En-tête Authorization invalide, un jeton Bearer est attendu");
+
+    private UnauthorizedException(ErrorCode errorCode, String message) {
+        super(errorCode, message);
+    }
+}
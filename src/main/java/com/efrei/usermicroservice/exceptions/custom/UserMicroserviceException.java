@@ -1,11 +1,47 @@
 package com.efrei.usermicroservice.exceptions.custom;
 
+/**
+ * Base of the exceptions answered with an error response. The body is serialized once, when the exception is created.
+ * <p>
+ * Unexpected failures keep their stack trace. Expected ones, answered with a 4xx, skip it: filling it is most of
+ * the cost of throwing, and bad logins or tokens are a large share of the traffic. Those without a per-request
+ * detail are preallocated and thrown as is.
+ */
 public class UserMicroserviceException extends RuntimeException {
+
+    private final ErrorCode errorCode;
+
+    private final byte[] problemBody;
+
     public UserMicroserviceException(String message) {
-        super(message);
+        this(ErrorCode.INTERNAL_ERROR, message, null, true);
     }
 
     public UserMicroserviceException(String message, Exception e) {
-        super(message, e);
+        this(ErrorCode.INTERNAL_ERROR, message, e, true);
+    }
+
+    /**
+     * Stackless and without suppressed exceptions, so a single instance can be shared between threads.
+     */
+    protected UserMicroserviceException(ErrorCode errorCode, String message) {
+        this(errorCode, message, null, false);
+    }
+
+    private UserMicroserviceException(ErrorCode errorCode, String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace, writableStackTrace);
+        this.errorCode = errorCode;
+        this.problemBody = errorCode.problemBody(message);
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * The {@code application/problem+json} body, shared: callers must not modify it.
+     */
+    public byte[] getProblemBody() {
+        return problemBody;
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,9 @@
 package com.efrei.usermicroservice.exceptions.custom;
 
-public class UserNotFoundException extends RuntimeException {
-    public UserNotFoundException(String message) {
-        super(message);
+public class UserNotFoundException extends UserMicroserviceException {
+    public static final UserNotFoundException INSTANCE = new UserNotFoundException();
+
+    private UserNotFoundException() {
+        super(ErrorCode.USER_NOT_FOUND, "Utilisateur introuvable");
     }
 }
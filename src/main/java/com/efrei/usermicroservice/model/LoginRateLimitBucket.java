@@ -0,0 +1,34 @@
+package com.efrei.usermicroservice.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Shared login throttling bucket, only used when {@code login.rate-limit.mode=postgres}.
+ */
+@Entity
+@Table(name = "login_rate_limit")
+public class LoginRateLimitBucket {
+
+    // "email:<email>" or "ip:<address>"
+    @Id
+    private String bucketKey;
+
+    // theoretical arrival time in epoch milliseconds, a bucket with an arrival time in the past is full
+    private long tat;
+
+    public String getBucketKey() {
+        return bucketKey;
+    }
+
+    public void setBucketKey(String bucketKey) {
+        this.bucketKey = bucketKey;
+    }
+
+    public long getTat() {
+        return tat;
+    }
+
+    public void setTat(long tat) {
+        this.tat = tat;
+    }
+}
@@ -0,0 +1,66 @@
+package com.efrei.usermicroservice.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(indexes = {
+        @Index(columnList = "family_id"),
+        @Index(columnList = "user_id")
+})
+public class RefreshToken {
+
+    // SHA-256 of the opaque token, the token itself is never stored
+    @Id
+    private String tokenHash;
+
+    // every token obtained by rotating the same login shares its family
+    private String familyId;
+
+    private String userId;
+
+    private Instant expiresAt;
+
+    private boolean used;
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public void setTokenHash(String tokenHash) {
+        this.tokenHash = tokenHash;
+    }
+
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    public void setFamilyId(String familyId) {
+        this.familyId = familyId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isUsed() {
+        return used;
+    }
+
+    public void setUsed(boolean used) {
+        this.used = used;
+    }
+}
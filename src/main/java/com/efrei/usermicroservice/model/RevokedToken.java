@@ -0,0 +1,31 @@
+package com.efrei.usermicroservice.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+public class RevokedToken {
+
+    @Id
+    private String jti;
+
+    // once the token itself has expired, the row is useless
+    private Instant expiresAt;
+
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,42 @@
+package com.efrei.usermicroservice.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+public class UserTokenCutoff {
+
+    @Id
+    private String userId;
+
+    // tokens of the user issued before this instant, a whole second, are revoked
+    private Instant issuedBefore;
+
+    // when the last token covered by the cutoff expires
+    private Instant expiresAt;
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Instant getIssuedBefore() {
+        return issuedBefore;
+    }
+
+    public void setIssuedBefore(Instant issuedBefore) {
+        this.issuedBefore = issuedBefore;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,13 @@
+package com.efrei.usermicroservice.model.dto;
+
+public record ImportRowResult(int row, String email, Status status, String id) {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        DUPLICATE_IN_REQUEST,
+        ALREADY_EXISTS,
+        // the body could not be parsed from this row on, nothing after it was imported
+        MALFORMED
+    }
+}
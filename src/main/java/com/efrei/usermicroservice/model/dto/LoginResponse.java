@@ -1,3 +1,4 @@
 package com.efrei.usermicroservice.model.dto;
 
-public record LoginResponse(String token) {}
+// expiresIn is the lifetime of the access token in seconds, the refresh token renews it through POST /token/refresh
+public record LoginResponse(String token, String refreshToken, long expiresIn) {}
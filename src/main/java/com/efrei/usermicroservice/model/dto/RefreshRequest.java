@@ -0,0 +1,3 @@
+package com.efrei.usermicroservice.model.dto;
+
+public record RefreshRequest(String refreshToken) {}
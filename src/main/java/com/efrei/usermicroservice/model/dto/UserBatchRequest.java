@@ -0,0 +1,5 @@
+package com.efrei.usermicroservice.model.dto;
+
+import java.util.List;
+
+public record UserBatchRequest(List<String> ids) {}
@@ -0,0 +1,5 @@
+package com.efrei.usermicroservice.model.dto;
+
+import com.efrei.usermicroservice.model.AppUser;
+
+public record UserLookupResult(String id, boolean found, AppUser user) {}
@@ -0,0 +1,7 @@
+package com.efrei.usermicroservice.model.dto;
+
+import com.efrei.usermicroservice.model.AppUser;
+
+import java.util.List;
+
+public record UserPage(List<AppUser> users, String nextCursor) {}
@@ -0,0 +1,36 @@
+package com.efrei.usermicroservice.reactive;
+
+import com.efrei.usermicroservice.exceptions.custom.*;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Same status codes, headers and bodies as {@link com.efrei.usermicroservice.exceptions.GlobalExceptionHandler},
+ * which is tied to the servlet stack.
+ */
+@RestControllerAdvice
+@Profile("reactive")
+public class ReactiveExceptionHandler {
+
+    @ExceptionHandler(UserMicroserviceException.class)
+    protected ResponseEntity<byte[]> handleUserMicroserviceException(UserMicroserviceException ex) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(ex.getErrorCode().getStatus())
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON);
+        if (ex.getErrorCode().isBearerChallenge()) {
+            response.header(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        }
+        return response.body(ex.getProblemBody());
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    protected ResponseEntity<byte[]> handleTooManyRequests(TooManyRequestsException ex) {
+        return ResponseEntity.status(ex.getErrorCode().getStatus())
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getProblemBody());
+    }
+}
@@ -0,0 +1,113 @@
+package com.efrei.usermicroservice.reactive;
+
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.dto.LoginAttempt;
+import com.efrei.usermicroservice.model.dto.LoginResponse;
+import com.efrei.usermicroservice.model.dto.UserBatchRequest;
+import com.efrei.usermicroservice.model.dto.UserLookupResult;
+import com.efrei.usermicroservice.model.dto.UserToCreate;
+import com.efrei.usermicroservice.utils.JWTUtils;
+import com.efrei.usermicroservice.utils.JwksDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same endpoints as {@link com.efrei.usermicroservice.controller.UserController}, served by WebFlux.
+ * The bulk import is not available in this variant.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveUserController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    ReactiveUserService userService;
+
+    JWTUtils jwtUtils;
+
+    CacheControl jwksCacheControl;
+
+    public ReactiveUserController(ReactiveUserService userService, JWTUtils jwtUtils,
+                                  @Value("${jwt.jwks.max-age-seconds}") long jwksMaxAgeSeconds) {
+        this.userService = userService;
+        this.jwtUtils = jwtUtils;
+        this.jwksCacheControl = CacheControl.maxAge(jwksMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+    }
+
+    @PostMapping("/user")
+    public Mono<AppUser> createUser(@RequestHeader(name = "Authorization", required = false) String bearerToken,
+                                    @RequestBody UserToCreate userToCreate) {
+        return userService.createUser(bearerToken, userToCreate);
+    }
+
+    @PostMapping("/login")
+    public Mono<LoginResponse> getJwt(@RequestBody LoginAttempt loginAttempt, ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return userService.login(loginAttempt, remoteAddress == null ? null : remoteAddress.getHostString());
+    }
+
+    @GetMapping("/public_key")
+    public ResponseEntity<byte[]> getJwk() {
+        // the document is precomputed, WebFlux answers 304 Not Modified when If-None-Match matches the ETag
+        JwksDocument jwks = jwtUtils.getJwksDocument();
+        return ResponseEntity.ok()
+                .eTag(jwks.etag())
+                .cacheControl(jwksCacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jwks.json());
+    }
+
+    @GetMapping("/user/{userId}")
+    public Mono<AppUser> getUser(@RequestHeader(name = "Authorization") String bearerToken,
+                                 @PathVariable String userId) {
+        return userService.getUserById(bearerToken, userId);
+    }
+
+    @PostMapping("/users/batch")
+    public Mono<List<UserLookupResult>> getUsersByIds(@RequestHeader(name = "Authorization") String bearerToken,
+                                                      @RequestBody UserBatchRequest userBatchRequest) {
+        return userService.getUsersByIds(bearerToken, userBatchRequest.ids());
+    }
+
+    @GetMapping("/user")
+    public Mono<ResponseEntity<List<AppUser>>> getAllUsers(@RequestHeader(name = "Authorization") String bearerToken,
+                                                           @RequestParam(name = "cursor", required = false) String cursor,
+                                                           @RequestParam(name = "size", required = false) Integer size) {
+        return userService.getUsersPage(bearerToken, cursor, size).map(userPage -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (userPage.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, userPage.nextCursor());
+            }
+            return response.body(userPage.users());
+        });
+    }
+
+    @GetMapping(value = "/user", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<AppUser> streamAllUsers(@RequestHeader(name = "Authorization") String bearerToken) {
+        // written line by line as the database cursor advances, at the pace the client reads
+        return userService.streamAllUsers(bearerToken);
+    }
+
+    @PutMapping("/user/{userId}")
+    public Mono<AppUser> modifyUser(@RequestHeader(name = "Authorization") String bearerToken,
+                                    @PathVariable String userId,
+                                    @RequestBody UserToCreate userToCreate) {
+        return userService.modifyUser(bearerToken, userId, userToCreate);
+    }
+
+    @DeleteMapping("/user/{userId}")
+    public Mono<Void> deleteUser(@RequestHeader(name = "Authorization") String bearerToken,
+                                 @PathVariable String userId) {
+        return userService.deleteUser(bearerToken, userId);
+    }
+}
@@ -0,0 +1,155 @@
+package com.efrei.usermicroservice.reactive;
+
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * R2DBC counterpart of {@link com.efrei.usermicroservice.repository.UserJdbcRepository}, same statements,
+ * so each read or write stays a single round-trip.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    private static final String SELECT_USER = "SELECT id, user_role, email, password_hash FROM app_user";
+
+    DatabaseClient databaseClient;
+
+    private final boolean invalidationEnabled;
+
+    private final String invalidationChannel;
+
+    private final int fetchSize;
+
+    // same wire format as CacheInvalidationBus, so servlet replicas evict what this one changes
+    private final String origin = UUID.randomUUID().toString();
+
+    public ReactiveUserRepository(DatabaseClient databaseClient,
+                                  @Value("${cache.invalidation.enabled}") boolean invalidationEnabled,
+                                  @Value("${cache.invalidation.channel}") String invalidationChannel,
+                                  @Value("${user.stream.fetch-size}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.invalidationEnabled = invalidationEnabled;
+        this.invalidationChannel = invalidationChannel;
+        this.fetchSize = fetchSize;
+    }
+
+    public Mono<AppUser> findById(String userId) {
+        return databaseClient.sql(SELECT_USER + " WHERE id = :id")
+                .bind("id", userId)
+                .map(ReactiveUserRepository::mapAppUser)
+                .one();
+    }
+
+    public Mono<AppUser> findByEmail(String email) {
+        return databaseClient.sql(SELECT_USER + " WHERE email = :email")
+                .bind("email", email)
+                .map(ReactiveUserRepository::mapAppUser)
+                .one();
+    }
+
+    public Flux<AppUser> findAllById(Collection<String> userIds) {
+        return databaseClient.sql(SELECT_USER + " WHERE id = ANY(:ids)")
+                .bind("ids", userIds.toArray(String[]::new))
+                .map(ReactiveUserRepository::mapAppUser)
+                .all();
+    }
+
+    public Flux<AppUser> findPage(String lastId, int limit) {
+        return databaseClient.sql(SELECT_USER + " WHERE id > :lastId ORDER BY id LIMIT :limit")
+                .bind("lastId", lastId)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::mapAppUser)
+                .all();
+    }
+
+    /**
+     * Every user ordered by id, fetched by the driver as the subscriber requests more.
+     */
+    public Flux<AppUser> findAll() {
+        return databaseClient.sql(SELECT_USER + " ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveUserRepository::mapAppUser)
+                .all();
+    }
+
+    public Mono<Boolean> insert(AppUser appUser) {
+        return bindUserRole(databaseClient.sql("INSERT INTO app_user (id, user_role, email, password_hash) "
+                        + "VALUES (:id, :role, :email, :passwordHash) ON CONFLICT (email) DO NOTHING"), appUser.getUserRole())
+                .bind("id", appUser.getId())
+                .bind("email", appUser.getEmail())
+                .bind("passwordHash", appUser.getPasswordHash())
+                .fetch()
+                .rowsUpdated()
+                .map(rowsUpdated -> rowsUpdated > 0);
+    }
+
+    /**
+     * Emits the previous email of the user, or completes empty when there is no user with this id.
+     */
+    public Mono<String> update(AppUser appUser) {
+        return bindUserRole(databaseClient.sql("UPDATE app_user u SET user_role = :role, email = :email, password_hash = :passwordHash "
+                        + "FROM (SELECT id, email FROM app_user WHERE id = :id FOR UPDATE) old "
+                        + "WHERE u.id = old.id RETURNING old.email"), appUser.getUserRole())
+                .bind("id", appUser.getId())
+                .bind("email", appUser.getEmail())
+                .bind("passwordHash", appUser.getPasswordHash())
+                .map(row -> row.get(0, String.class))
+                .one();
+    }
+
+    public Mono<Boolean> updatePasswordHash(String userId, String oldHash, String newHash) {
+        return databaseClient.sql("UPDATE app_user SET password_hash = :newHash WHERE id = :id AND password_hash = :oldHash")
+                .bind("id", userId)
+                .bind("oldHash", oldHash)
+                .bind("newHash", newHash)
+                .fetch()
+                .rowsUpdated()
+                .map(rowsUpdated -> rowsUpdated > 0);
+    }
+
+    /**
+     * Emits the email the deleted user had, or completes empty when there was no user with this id.
+     */
+    public Mono<String> deleteById(String userId) {
+        return databaseClient.sql("DELETE FROM app_user WHERE id = :id RETURNING email")
+                .bind("id", userId)
+                .map(row -> row.get(0, String.class))
+                .one();
+    }
+
+    public Mono<Void> publishInvalidation(String userId, String email) {
+        if (!invalidationEnabled) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("SELECT pg_notify(:channel, :payload)")
+                .bind("channel", invalidationChannel)
+                .bind("payload", origin + "|user|" + userId + "|" + (email == null ? "" : email))
+                .then();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindUserRole(DatabaseClient.GenericExecuteSpec spec, UserRole userRole) {
+        // the role is stored as its ordinal, like JPA does by default
+        return userRole == null ? spec.bindNull("role", Short.class) : spec.bind("role", (short) userRole.ordinal());
+    }
+
+    private static AppUser mapAppUser(Readable row) {
+        AppUser appUser = new AppUser();
+        appUser.setId(row.get("id", String.class));
+        Short role = row.get("user_role", Short.class);
+        appUser.setUserRole(role == null ? null : UserRole.values()[role]);
+        appUser.setEmail(row.get("email", String.class));
+        appUser.setPasswordHash(row.get("password_hash", String.class));
+        return appUser;
+    }
+}
@@ -0,0 +1,250 @@
+package com.efrei.usermicroservice.reactive;
+
+import com.efrei.usermicroservice.exceptions.custom.BadRequestException;
+import com.efrei.usermicroservice.exceptions.custom.EmailAlreadyExistingException;
+import com.efrei.usermicroservice.exceptions.custom.ForbiddenException;
+import com.efrei.usermicroservice.exceptions.custom.IncorrectPasswordException;
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import com.efrei.usermicroservice.exceptions.custom.UnauthorizedException;
+import com.efrei.usermicroservice.exceptions.custom.UserNotFoundException;
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.model.dto.LoginAttempt;
+import com.efrei.usermicroservice.model.dto.LoginResponse;
+import com.efrei.usermicroservice.model.dto.UserLookupResult;
+import com.efrei.usermicroservice.model.dto.UserPage;
+import com.efrei.usermicroservice.model.dto.UserToCreate;
+import com.efrei.usermicroservice.security.AuthenticatedUser;
+import com.efrei.usermicroservice.security.LoginRateLimiter;
+import com.efrei.usermicroservice.utils.AuthMetrics;
+import com.efrei.usermicroservice.utils.AuthMetrics.Stage;
+import com.efrei.usermicroservice.utils.JWTUtils;
+import com.efrei.usermicroservice.utils.PageCursor;
+import com.efrei.usermicroservice.utils.PasswordHashingEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link com.efrei.usermicroservice.service.UserServiceImpl}.
+ * <p>
+ * Nothing here runs on the event loop except wiring: queries go through R2DBC, JWT signing and verification run
+ * on the parallel scheduler (CPU-bound, one thread per core), and password hashing on the bounded pool of
+ * {@link PasswordHashingEngine}, whose full queue still turns into a 429.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveUserService.class);
+
+    ReactiveUserRepository userRepository;
+
+    JWTUtils jwtUtils;
+
+    PasswordHashingEngine passwordHashingEngine;
+
+    LoginRateLimiter loginRateLimiter;
+
+    AuthMetrics authMetrics;
+
+    private final Scheduler jwtScheduler = Schedulers.parallel();
+
+    private final int defaultPageSize;
+
+    private final int maxPageSize;
+
+    private final int maxBatchSize;
+
+    public ReactiveUserService(ReactiveUserRepository userRepository, JWTUtils jwtUtils,
+                               PasswordHashingEngine passwordHashingEngine, LoginRateLimiter loginRateLimiter,
+                               AuthMetrics authMetrics,
+                               @Value("${user.page.default-size}") int defaultPageSize,
+                               @Value("${user.page.max-size}") int maxPageSize,
+                               @Value("${user.batch.max-size}") int maxBatchSize) {
+        this.userRepository = userRepository;
+        this.jwtUtils = jwtUtils;
+        this.passwordHashingEngine = passwordHashingEngine;
+        this.loginRateLimiter = loginRateLimiter;
+        this.authMetrics = authMetrics;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Same rules as the servlet stack: an anonymous caller, or one whose header does not verify, only creates
+     * customers, and only an agent creates users with another role.
+     */
+    public Mono<AppUser> createUser(String bearerToken, UserToCreate userToCreate) {
+        Mono<Optional<AuthenticatedUser>> caller = bearerToken == null
+                ? Mono.just(Optional.empty())
+                : authenticate(bearerToken).map(Optional::of)
+                        .onErrorReturn(e -> e instanceof JWTException || e instanceof UnauthorizedException, Optional.empty());
+        return caller
+                .map(authenticatedUser -> {
+                    if (authenticatedUser.isEmpty()) {
+                        return new UserToCreate(UserRole.CUSTOMER, userToCreate.email(), userToCreate.password());
+                    }
+                    if (!authenticatedUser.get().isAgent() && userToCreate.role() != UserRole.CUSTOMER) {
+                        throw new ForbiddenException("Seul un agent peut créer un utilisateur avec ce rôle");
+                    }
+                    return userToCreate;
+                })
+                .flatMap(this::mapUserToCreateIntoUser)
+                .flatMap(appUser -> {
+                    appUser.setId(UUID.randomUUID().toString());
+                    return userRepository.insert(appUser)
+                            .flatMap(inserted -> inserted
+                                    ? Mono.just(appUser)
+                                    : Mono.error(EmailAlreadyExistingException.INSTANCE));
+                });
+    }
+
+    public Mono<AppUser> getUserById(String bearerToken, String userId) {
+        return authenticate(bearerToken, UserRole.CUSTOMER, UserRole.AGENT)
+                .then(userRepository.findById(userId))
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.INSTANCE));
+    }
+
+    public Mono<List<UserLookupResult>> getUsersByIds(String bearerToken, List<String> userIds) {
+        return authenticate(bearerToken, UserRole.CUSTOMER, UserRole.AGENT).then(Mono.defer(() -> {
+            if (userIds == null || userIds.isEmpty()) {
+                return Mono.just(List.of());
+            }
+            if (userIds.size() > maxBatchSize) {
+                return Mono.error(new BadRequestException("Impossible de demander plus de " + maxBatchSize + " utilisateurs à la fois"));
+            }
+            return userRepository.findAllById(new LinkedHashSet<>(userIds))
+                    .collectMap(AppUser::getId, Function.identity())
+                    .map(appUsers -> lookupResults(userIds, appUsers));
+        }));
+    }
+
+    public Mono<UserPage> getUsersPage(String bearerToken, String cursor, Integer size) {
+        return authenticate(bearerToken, UserRole.AGENT).then(Mono.defer(() -> {
+            int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+            // one extra row tells whether there is a next page without a count query
+            return userRepository.findPage(PageCursor.decode(cursor), pageSize + 1)
+                    .collectList()
+                    .map(users -> {
+                        if (users.size() <= pageSize) {
+                            return new UserPage(users, null);
+                        }
+                        List<AppUser> page = users.subList(0, pageSize);
+                        return new UserPage(page, PageCursor.encode(page.get(pageSize - 1).getId()));
+                    });
+        }));
+    }
+
+    public Flux<AppUser> streamAllUsers(String bearerToken) {
+        return authenticate(bearerToken, UserRole.AGENT).thenMany(userRepository.findAll());
+    }
+
+    public Mono<LoginResponse> login(LoginAttempt loginAttempt, String clientIp) {
+        // the local limiter never blocks, it can run on the event loop
+        return Mono.fromRunnable(() -> authMetrics.time(Stage.RATE_LIMIT, () -> loginRateLimiter.acquire(loginAttempt.email(), clientIp)))
+                .then(userRepository.findByEmail(loginAttempt.email()))
+                // same KDF cost and same answer as a wrong password for an unknown email
+                .switchIfEmpty(Mono.fromFuture(() -> passwordHashingEngine.verifyDummyAsync(loginAttempt.password()))
+                        .then(Mono.error(IncorrectPasswordException.INSTANCE)))
+                .flatMap(appUser -> Mono.fromFuture(() -> passwordHashingEngine.verifyAsync(loginAttempt.password(), appUser.getPasswordHash()))
+                        .flatMap(correct -> {
+                            if (!correct) {
+                                return Mono.error(IncorrectPasswordException.INSTANCE);
+                            }
+                            rehashIfNeeded(appUser, loginAttempt.password());
+                            // no refresh token in this variant, the client logs in again once the access token expires
+                            return Mono.fromCallable(() -> new LoginResponse(jwtUtils.createJWT(appUser), null, jwtUtils.getExpiresInSeconds()))
+                                    .subscribeOn(jwtScheduler);
+                        }));
+    }
+
+    public Mono<AppUser> modifyUser(String bearerToken, String userId, UserToCreate userToCreate) {
+        return authenticate(bearerToken)
+                .doOnNext(authenticatedUser -> {
+                    authenticatedUser.checkSelfOrAgent(userId);
+                    if (!authenticatedUser.isAgent() && userToCreate.role() != authenticatedUser.role()) {
+                        throw new ForbiddenException("Seul un agent peut modifier le rôle d'un utilisateur");
+                    }
+                })
+                .then(mapUserToCreateIntoUser(userToCreate))
+                .flatMap(appUser -> {
+                    appUser.setId(userId);
+                    return userRepository.update(appUser)
+                            .onErrorMap(DuplicateKeyException.class,
+                                    e -> EmailAlreadyExistingException.INSTANCE)
+                            .switchIfEmpty(Mono.error(() -> UserNotFoundException.INSTANCE))
+                            // the old email must stop resolving to this user on the servlet replicas
+                            .flatMap(oldEmail -> userRepository.publishInvalidation(userId, oldEmail))
+                            .thenReturn(appUser);
+                });
+    }
+
+    public Mono<Void> deleteUser(String bearerToken, String userId) {
+        return authenticate(bearerToken)
+                .doOnNext(authenticatedUser -> authenticatedUser.checkSelfOrAgent(userId))
+                .then(userRepository.deleteById(userId))
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.INSTANCE))
+                .flatMap(email -> userRepository.publishInvalidation(userId, email));
+    }
+
+    private Mono<AuthenticatedUser> authenticate(String bearerToken, UserRole... roles) {
+        return authenticate(bearerToken).doOnNext(authenticatedUser -> authenticatedUser.checkRole(roles));
+    }
+
+    private Mono<AuthenticatedUser> authenticate(String bearerToken) {
+        String jwt = JWTUtils.extractBearerToken(bearerToken);
+        if (jwt == null) {
+            return Mono.error(UnauthorizedException.MALFORMED_HEADER);
+        }
+        return Mono.fromCallable(() -> AuthenticatedUser.fromClaims(jwtUtils.validateJwt(jwt)))
+                .subscribeOn(jwtScheduler);
+    }
+
+    /**
+     * Same lazy upgrade as the servlet stack, fire-and-forget so the login never waits for it.
+     */
+    private void rehashIfNeeded(AppUser appUser, String password) {
+        String currentHash = appUser.getPasswordHash();
+        if (!passwordHashingEngine.needsRehash(currentHash)) {
+            return;
+        }
+        Mono.fromFuture(() -> passwordHashingEngine.hashAsync(password))
+                .flatMap(upgradedHash -> userRepository.updatePasswordHash(appUser.getId(), currentHash, upgradedHash))
+                .flatMap(updated -> updated ? userRepository.publishInvalidation(appUser.getId(), appUser.getEmail()) : Mono.empty())
+                .subscribe(null, e -> LOGGER.warn("Mise à jour du hash du mot de passe impossible pour l'utilisateur {}", appUser.getId(), e));
+    }
+
+    private Mono<AppUser> mapUserToCreateIntoUser(UserToCreate userToCreate) {
+        return Mono.fromFuture(() -> passwordHashingEngine.hashAsync(userToCreate.password()))
+                .map(passwordHash -> {
+                    AppUser appUser = new AppUser();
+                    appUser.setUserRole(userToCreate.role());
+                    appUser.setEmail(userToCreate.email());
+                    appUser.setPasswordHash(passwordHash);
+                    return appUser;
+                });
+    }
+
+    private static List<UserLookupResult> lookupResults(List<String> userIds, Map<String, AppUser> appUsers) {
+        // same order as the request, duplicates included, with an explicit marker for unknown ids
+        return userIds.stream()
+                .map(userId -> new UserLookupResult(userId, appUsers.containsKey(userId), appUsers.get(userId)))
+                .toList();
+    }
+}
@@ -0,0 +1,168 @@
+package com.efrei.usermicroservice.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps per-node caches coherent across replicas through Postgres {@code LISTEN/NOTIFY}.
+ * <p>
+ * Mutations publish {@code <origin>|<kind>|<payload>} on a dedicated channel. Every node listens on its own
+ * connection, outside the Hikari pool, and hands the payload to the listener registered for that kind.
+ * Notifications sent while a node is disconnected are lost, so after a reconnect every listener
+ * is asked to drop its whole cache.
+ */
+@Component
+@Profile("!reactive")
+public class CacheInvalidationBus implements SmartLifecycle {
+
+    public interface InvalidationListener {
+        void onInvalidation(String payload);
+
+        void onResync();
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    JdbcTemplate jdbcTemplate;
+
+    DataSourceProperties dataSourceProperties;
+
+    private final boolean enabled;
+
+    private final String channel;
+
+    private final int pollTimeoutMillis;
+
+    private final long reconnectDelayMillis;
+
+    // lets a node skip its own notifications, it already evicted locally
+    private final String origin = UUID.randomUUID().toString();
+
+    private final Map<String, InvalidationListener> listeners = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    private Thread listenerThread;
+
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate, DataSourceProperties dataSourceProperties,
+                                @Value("${cache.invalidation.enabled}") boolean enabled,
+                                @Value("${cache.invalidation.channel}") String channel,
+                                @Value("${cache.invalidation.poll-timeout-ms}") int pollTimeoutMillis,
+                                @Value("${cache.invalidation.reconnect-delay-ms}") long reconnectDelayMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.pollTimeoutMillis = pollTimeoutMillis;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    public void register(String kind, InvalidationListener listener) {
+        listeners.put(kind, listener);
+    }
+
+    public void publish(String kind, String payload) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> {}, channel, origin + "|" + kind + "|" + payload);
+        } catch (RuntimeException e) {
+            // other nodes fall back on their cache TTL
+            LOGGER.warn("Publication de l'invalidation {} impossible", kind, e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        boolean firstConnection = true;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (!firstConnection) {
+                    listeners.values().forEach(InvalidationListener::onResync);
+                }
+                firstConnection = false;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.warn("Connexion d'écoute des invalidations perdue, nouvelle tentative dans {} ms", reconnectDelayMillis, e);
+                firstConnection = false;
+                try {
+                    Thread.sleep(reconnectDelayMillis);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length != 3 || origin.equals(parts[0])) {
+            return;
+        }
+        InvalidationListener listener = listeners.get(parts[1]);
+        if (listener != null) {
+            try {
+                listener.onInvalidation(parts[2]);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Invalidation {} ignorée", parts[1], e);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.efrei.usermicroservice.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.OptionalLong;
+
+/**
+ * JDBC access to the {@code login_rate_limit} table, one upsert per bucket and attempt.
+ */
+@Repository
+@Profile("!reactive")
+@ConditionalOnProperty(name = "login.rate-limit.mode", havingValue = "postgres")
+public class LoginRateLimitRepository {
+
+    // the bucket only moves when the attempt is allowed, a refused attempt returns no row and changes nothing
+    private static final String ACQUIRE =
+            "INSERT INTO login_rate_limit AS bucket (bucket_key, tat) VALUES (?, ?) "
+                    + "ON CONFLICT (bucket_key) DO UPDATE SET tat = GREATEST(bucket.tat + ?, EXCLUDED.tat) "
+                    + "WHERE GREATEST(bucket.tat + ?, EXCLUDED.tat) <= ? "
+                    + "RETURNING tat";
+
+    JdbcTemplate jdbcTemplate;
+
+    public LoginRateLimitRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Moves the arrival time of the bucket one interval forward unless it would go past {@code maxTat}.
+     *
+     * @return false when the attempt is refused
+     */
+    public boolean acquire(String bucketKey, long now, long emissionIntervalMillis, long maxTat) {
+        return !jdbcTemplate.queryForList(ACQUIRE, Long.class,
+                bucketKey, now + emissionIntervalMillis, emissionIntervalMillis, emissionIntervalMillis, maxTat).isEmpty();
+    }
+
+    public OptionalLong findTat(String bucketKey) {
+        return jdbcTemplate.queryForList("SELECT tat FROM login_rate_limit WHERE bucket_key = ?", Long.class, bucketKey)
+                .stream().mapToLong(Long::longValue).findFirst();
+    }
+
+    public int deleteFull(long now) {
+        return jdbcTemplate.update("DELETE FROM login_rate_limit WHERE tat < ?", now);
+    }
+}
@@ -0,0 +1,79 @@
+package com.efrei.usermicroservice.repository;
+
+import com.efrei.usermicroservice.model.RefreshToken;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * JDBC access to the {@code refresh_token} table, every operation being a single statement on an index.
+ */
+@Repository
+@Profile("!reactive")
+public class RefreshTokenRepository {
+
+    private static final String INSERT =
+            "INSERT INTO refresh_token (token_hash, family_id, user_id, expires_at, used) VALUES (?, ?, ?, ?, false)";
+
+    // marks the token as used and returns it only if it was still usable, concurrent refreshes cannot both win
+    private static final String CONSUME =
+            "UPDATE refresh_token SET used = true WHERE token_hash = ? AND NOT used AND expires_at > ? "
+                    + "RETURNING token_hash, family_id, user_id, expires_at, used";
+
+    private static final String SELECT_BY_HASH =
+            "SELECT token_hash, family_id, user_id, expires_at, used FROM refresh_token WHERE token_hash = ?";
+
+    JdbcTemplate jdbcTemplate;
+
+    public RefreshTokenRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Stores a new token of the family. Used tokens are not removed here: every one of them must still be
+     * recognized as a replay until the family is revoked or the token expires and {@link #deleteExpired} sweeps it.
+     */
+    public void insert(RefreshToken refreshToken) {
+        jdbcTemplate.update(INSERT,
+                refreshToken.getTokenHash(), refreshToken.getFamilyId(), refreshToken.getUserId(),
+                Timestamp.from(refreshToken.getExpiresAt()));
+    }
+
+    public Optional<RefreshToken> consume(String tokenHash, Instant now) {
+        return jdbcTemplate.query(CONSUME, (resultSet, rowNum) -> mapRefreshToken(resultSet),
+                tokenHash, Timestamp.from(now)).stream().findFirst();
+    }
+
+    public Optional<RefreshToken> findByHash(String tokenHash) {
+        return jdbcTemplate.query(SELECT_BY_HASH, (resultSet, rowNum) -> mapRefreshToken(resultSet),
+                tokenHash).stream().findFirst();
+    }
+
+    public int deleteFamily(String familyId) {
+        return jdbcTemplate.update("DELETE FROM refresh_token WHERE family_id = ?", familyId);
+    }
+
+    public int deleteByUserId(String userId) {
+        return jdbcTemplate.update("DELETE FROM refresh_token WHERE user_id = ?", userId);
+    }
+
+    public int deleteExpired(Instant now) {
+        return jdbcTemplate.update("DELETE FROM refresh_token WHERE expires_at < ?", Timestamp.from(now));
+    }
+
+    private RefreshToken mapRefreshToken(ResultSet resultSet) throws SQLException {
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(resultSet.getString("token_hash"));
+        refreshToken.setFamilyId(resultSet.getString("family_id"));
+        refreshToken.setUserId(resultSet.getString("user_id"));
+        refreshToken.setExpiresAt(resultSet.getTimestamp("expires_at").toInstant());
+        refreshToken.setUsed(resultSet.getBoolean("used"));
+        return refreshToken;
+    }
+}
@@ -0,0 +1,148 @@
+package com.efrei.usermicroservice.repository;
+
+import com.efrei.usermicroservice.model.AppUser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded near-cache in front of {@link UserRepository} for the two hot lookups, by id and by email.
+ * Users are stored once by id, the email index only points to the id, so a single eviction by id
+ * is enough to make both lookups miss. Cached users are shared between requests and must not be modified.
+ * {@link #invalidate} also evicts the user on the other replicas through the {@link CacheInvalidationBus}.
+ * <p>
+ * A user read from the database is only kept if no eviction happened while it was read, the row could predate it.
+ */
+@Component
+@Profile("!reactive")
+public class UserCache {
+
+    private static final String INVALIDATION_KIND = "user";
+
+    UserRepository userRepository;
+
+    CacheInvalidationBus cacheInvalidationBus;
+
+    private final Cache<String, AppUser> usersById;
+
+    private final Cache<String, String> userIdsByEmail;
+
+    // bumped before each eviction, a load that saw another value may have read a stale row
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserCache(UserRepository userRepository, CacheInvalidationBus cacheInvalidationBus, MeterRegistry meterRegistry,
+                     @Value("${user.cache.maximum-size}") long maximumSize,
+                     @Value("${user.cache.ttl-seconds}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.userIdsByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, userIdsByEmail, "users.by-email");
+
+        cacheInvalidationBus.register(INVALIDATION_KIND, new CacheInvalidationBus.InvalidationListener() {
+            @Override
+            public void onInvalidation(String payload) {
+                // "<id>|<email>", the email may be empty
+                String[] parts = payload.split("\\|", 2);
+                evict(parts[0], parts.length > 1 && !parts[1].isEmpty() ? parts[1] : null);
+            }
+
+            @Override
+            public void onResync() {
+                evictions.incrementAndGet();
+                usersById.invalidateAll();
+                userIdsByEmail.invalidateAll();
+            }
+        });
+    }
+
+    public Optional<AppUser> findById(String userId) {
+        AppUser appUser = usersById.getIfPresent(userId);
+        if (appUser != null) {
+            return Optional.of(appUser);
+        }
+        long generation = evictions.get();
+        Optional<AppUser> loadedUser = userRepository.findById(userId);
+        loadedUser.ifPresent(loaded -> putLoaded(loaded, generation));
+        return loadedUser;
+    }
+
+    /**
+     * Resolves several ids at once: cached users are served directly and all the others
+     * are loaded with a single {@code IN} query. Unknown ids are simply absent from the result.
+     */
+    public Map<String, AppUser> findAllById(Collection<String> userIds) {
+        Map<String, AppUser> appUsers = new HashMap<>(usersById.getAllPresent(userIds));
+        List<String> missingIds = userIds.stream().filter(userId -> !appUsers.containsKey(userId)).toList();
+        if (!missingIds.isEmpty()) {
+            long generation = evictions.get();
+            for (AppUser appUser : userRepository.findAllById(missingIds)) {
+                putLoaded(appUser, generation);
+                appUsers.put(appUser.getId(), appUser);
+            }
+        }
+        return appUsers;
+    }
+
+    public Optional<AppUser> findByEmail(String email) {
+        String userId = userIdsByEmail.getIfPresent(email);
+        if (userId != null) {
+            AppUser appUser = usersById.getIfPresent(userId);
+            // the email index may outlive a user whose email changed
+            if (appUser != null && appUser.getEmail().equals(email)) {
+                return Optional.of(appUser);
+            }
+        }
+        long generation = evictions.get();
+        Optional<AppUser> loadedUser = userRepository.findByEmail(email);
+        loadedUser.ifPresent(loaded -> putLoaded(loaded, generation));
+        return loadedUser;
+    }
+
+    public void put(AppUser appUser) {
+        usersById.put(appUser.getId(), appUser);
+        userIdsByEmail.put(appUser.getEmail(), appUser.getId());
+    }
+
+    public void invalidate(String userId, String email) {
+        evict(userId, email);
+        cacheInvalidationBus.publish(INVALIDATION_KIND, userId + "|" + (email == null ? "" : email));
+    }
+
+    /**
+     * The check comes after the put: an eviction landing between a check and a put would be lost.
+     * Undoing the put at worst drops a fresh entry, the next lookup reloads it.
+     */
+    private void putLoaded(AppUser appUser, long generation) {
+        put(appUser);
+        if (evictions.get() != generation) {
+            usersById.invalidate(appUser.getId());
+            userIdsByEmail.invalidate(appUser.getEmail());
+        }
+    }
+
+    private void evict(String userId, String email) {
+        evictions.incrementAndGet();
+        usersById.invalidate(userId);
+        if (email != null) {
+            userIdsByEmail.invalidate(email);
+        }
+    }
+}
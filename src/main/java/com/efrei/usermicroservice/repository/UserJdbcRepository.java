@@ -0,0 +1,169 @@
+package com.efrei.usermicroservice.repository;
+
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.utils.AuthMetrics;
+import com.efrei.usermicroservice.utils.AuthMetrics.Stage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access to the {@code app_user} table, for the paths where going through JPA entities
+ * would either load too much at once or cost extra round-trips. Writes are timed under the {@code user-write} stage.
+ */
+@Repository
+@Profile("!reactive")
+public class UserJdbcRepository {
+
+    private static final String SELECT_ALL_ORDERED_BY_ID =
+            "SELECT id, user_role, email, password_hash FROM app_user ORDER BY id";
+
+    // a taken email skips the row instead of failing the statement, or the whole batch
+    private static final String INSERT_IF_EMAIL_ABSENT =
+            "INSERT INTO app_user (id, user_role, email, password_hash) VALUES (?, ?, ?, ?) ON CONFLICT (email) DO NOTHING";
+
+    // the locked sub-select still sees the row as it was before the update, hence the old email
+    private static final String UPDATE_RETURNING_OLD_EMAIL =
+            "UPDATE app_user u SET user_role = ?, email = ?, password_hash = ? "
+                    + "FROM (SELECT id, email FROM app_user WHERE id = ? FOR UPDATE) old "
+                    + "WHERE u.id = old.id RETURNING old.email";
+
+    private static final String DELETE_RETURNING_EMAIL = "DELETE FROM app_user WHERE id = ? RETURNING email";
+
+    JdbcTemplate jdbcTemplate;
+
+    AuthMetrics authMetrics;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final TransactionTemplate writeTransaction;
+
+    private final int fetchSize;
+
+    public UserJdbcRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              AuthMetrics authMetrics, @Value("${user.stream.fetch-size}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.authMetrics = authMetrics;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Hands every user to the consumer, ordered by id, without ever holding more than one fetch in memory.
+     * The Postgres driver only uses a server-side cursor inside a transaction, hence the read-only one.
+     */
+    public void streamAll(Consumer<AppUser> consumer) {
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ALL_ORDERED_BY_ID,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, resultSet -> {
+            consumer.accept(mapAppUser(resultSet));
+        }));
+    }
+
+    /**
+     * Inserts the user, which must already have an id, in one statement.
+     * Returns false when the email is already taken, the unique constraint being the only check.
+     */
+    public boolean insert(AppUser appUser) {
+        return authMetrics.time(Stage.USER_WRITE, () -> jdbcTemplate.update(INSERT_IF_EMAIL_ABSENT, statement -> {
+            statement.setString(1, appUser.getId());
+            setUserRole(statement, 2, appUser.getUserRole());
+            statement.setString(3, appUser.getEmail());
+            statement.setString(4, appUser.getPasswordHash());
+        })) > 0;
+    }
+
+    /**
+     * Replaces the role, email and password hash of the user in one statement and returns its previous email,
+     * or nothing when there is no user with this id. A taken email surfaces as a
+     * {@link org.springframework.dao.DuplicateKeyException}.
+     */
+    public Optional<String> update(AppUser appUser) {
+        List<String> oldEmails = authMetrics.time(Stage.USER_WRITE, () -> jdbcTemplate.query(UPDATE_RETURNING_OLD_EMAIL,
+                statement -> {
+                    setUserRole(statement, 1, appUser.getUserRole());
+                    statement.setString(2, appUser.getEmail());
+                    statement.setString(3, appUser.getPasswordHash());
+                    statement.setString(4, appUser.getId());
+                }, (resultSet, rowNum) -> resultSet.getString(1)));
+        return oldEmails.stream().findFirst();
+    }
+
+    /**
+     * Deletes the user and returns the email it had, or nothing when there was no user with this id.
+     */
+    public Optional<String> deleteById(String userId) {
+        List<String> emails = authMetrics.time(Stage.USER_WRITE, () -> jdbcTemplate.query(DELETE_RETURNING_EMAIL,
+                statement -> statement.setString(1, userId),
+                (resultSet, rowNum) -> resultSet.getString(1)));
+        return emails.stream().findFirst();
+    }
+
+    /**
+     * Inserts the users, which must already have an id, as a single JDBC batch committed at once.
+     * The returned array tells for each user whether it was inserted or skipped because its email was taken.
+     */
+    public boolean[] insertAll(List<AppUser> appUsers) {
+        int[] updateCounts = authMetrics.time(Stage.USER_WRITE,
+                () -> writeTransaction.execute(status -> jdbcTemplate.batchUpdate(INSERT_IF_EMAIL_ABSENT,
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                                AppUser appUser = appUsers.get(i);
+                                statement.setString(1, appUser.getId());
+                                setUserRole(statement, 2, appUser.getUserRole());
+                                statement.setString(3, appUser.getEmail());
+                                statement.setString(4, appUser.getPasswordHash());
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return appUsers.size();
+                            }
+                        })));
+
+        boolean[] inserted = new boolean[appUsers.size()];
+        for (int i = 0; i < inserted.length; i++) {
+            inserted[i] = updateCounts[i] > 0;
+        }
+        return inserted;
+    }
+
+    private static void setUserRole(PreparedStatement statement, int index, UserRole userRole) throws SQLException {
+        // the role is stored as its ordinal, like JPA does by default
+        if (userRole == null) {
+            statement.setNull(index, Types.SMALLINT);
+        } else {
+            statement.setShort(index, (short) userRole.ordinal());
+        }
+    }
+
+    private AppUser mapAppUser(ResultSet resultSet) throws SQLException {
+        AppUser appUser = new AppUser();
+        appUser.setId(resultSet.getString("id"));
+        // the role is stored as its ordinal, like JPA does by default
+        int role = resultSet.getInt("user_role");
+        appUser.setUserRole(resultSet.wasNull() ? null : UserRole.values()[role]);
+        appUser.setEmail(resultSet.getString("email"));
+        appUser.setPasswordHash(resultSet.getString("password_hash"));
+        return appUser;
+    }
+}
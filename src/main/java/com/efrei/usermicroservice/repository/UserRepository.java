@@ -1,9 +1,16 @@
 package com.efrei.usermicroservice.repository;
 
 import com.efrei.usermicroservice.model.AppUser;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +18,21 @@ public interface UserRepository extends JpaRepository<AppUser, String> {
 
     Optional<AppUser> findByEmail(String email);
 
+    // one query per import chunk instead of one findByEmail per row
+    @Query("select u.email from AppUser u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // keyset pagination: the primary key index serves both the filter and the order
+    List<AppUser> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    // only replaces the hash that was verified, so a concurrent password change always wins
+    @Modifying
+    @Transactional
+    @Query("update AppUser u set u.passwordHash = :newHash where u.id = :id and u.passwordHash = :oldHash")
+    int updatePasswordHash(@Param("id") String id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    // every current hash format starts with '$', legacy SHA-256 hashes are plain hex
+    @Query("select count(u) from AppUser u where u.passwordHash not like '$%'")
+    long countLegacyPasswordHashes();
+
 }
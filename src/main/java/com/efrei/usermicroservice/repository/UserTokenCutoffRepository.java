@@ -0,0 +1,36 @@
+package com.efrei.usermicroservice.repository;
+
+import com.efrei.usermicroservice.model.UserTokenCutoff;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UserTokenCutoffRepository extends JpaRepository<UserTokenCutoff, String> {
+
+    List<UserTokenCutoff> findByExpiresAtAfter(Instant now);
+
+    /**
+     * Records a cutoff unless a later one is already stored: concurrent revocations may commit in any order,
+     * the cutoff never moves backwards.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO user_token_cutoff (user_id, issued_before, expires_at) VALUES (:userId, :issuedBefore, :expiresAt) "
+            + "ON CONFLICT (user_id) DO UPDATE SET "
+            + "issued_before = GREATEST(user_token_cutoff.issued_before, EXCLUDED.issued_before), "
+            + "expires_at = GREATEST(user_token_cutoff.expires_at, EXCLUDED.expires_at)", nativeQuery = true)
+    int advance(@Param("userId") String userId, @Param("issuedBefore") Instant issuedBefore, @Param("expiresAt") Instant expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from UserTokenCutoff t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+
+}
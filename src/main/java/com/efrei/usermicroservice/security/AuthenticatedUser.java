@@ -0,0 +1,57 @@
+package com.efrei.usermicroservice.security;
+
+import com.efrei.usermicroservice.exceptions.custom.ForbiddenException;
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.utils.JWTUtils;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+
+import java.util.Arrays;
+
+/**
+ * Caller of the current request, built from the verified access token only, without reading the database.
+ * Declared as a controller method parameter, it makes the endpoint require authentication.
+ * <p>
+ * The access rules shared by the servlet and reactive stacks live here, decided from the claims alone.
+ */
+public record AuthenticatedUser(String userId, String email, UserRole role, JwtClaims claims) {
+
+    static final String REQUEST_ATTRIBUTE = AuthenticatedUser.class.getName();
+
+    public static AuthenticatedUser fromClaims(JwtClaims claims) {
+        try {
+            String userId = claims.getStringClaimValue("userId");
+            String role = claims.getStringClaimValue("role");
+            if (userId == null || role == null) {
+                throw JWTException.INVALID;
+            }
+            return new AuthenticatedUser(userId, claims.getStringClaimValue("email"), UserRole.valueOf(role), claims);
+        } catch (MalformedClaimException | IllegalArgumentException e) {
+            throw JWTException.INVALID;
+        }
+    }
+
+    /**
+     * Refresh-token family the access token was issued for, null for a token issued without one.
+     */
+    public String sessionId() {
+        return claims.getClaimValueAsString(JWTUtils.SESSION_ID_CLAIM);
+    }
+
+    public boolean isAgent() {
+        return role == UserRole.AGENT;
+    }
+
+    public void checkRole(UserRole... roles) {
+        if (!Arrays.asList(roles).contains(role)) {
+            throw new ForbiddenException("Accès réservé aux rôles " + Arrays.toString(roles));
+        }
+    }
+
+    public void checkSelfOrAgent(String targetUserId) {
+        if (!isAgent() && !userId.equals(targetUserId)) {
+            throw new ForbiddenException("Seul un agent peut agir sur un autre utilisateur que lui-même");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.efrei.usermicroservice.security;
+
+import com.efrei.usermicroservice.exceptions.custom.TooManyRequestsException;
+
+/**
+ * Capacity and refill rate of one kind of login bucket, see {@link LoginRateLimiter}.
+ * <p>
+ * A rejected attempt never waits more than one emission interval, so the rejections are preallocated,
+ * one per possible {@code Retry-After} in seconds: a flood of throttled logins throws without allocating.
+ */
+final class BucketPolicy {
+
+    private final int capacity;
+
+    private final long emissionIntervalMillis;
+
+    private final TooManyRequestsException[] rejections;
+
+    private BucketPolicy(String name, int capacity, long emissionIntervalMillis) {
+        this.capacity = capacity;
+        this.emissionIntervalMillis = emissionIntervalMillis;
+        String message = "Trop de tentatives de connexion (" + name + "), réessayez plus tard";
+        this.rejections = new TooManyRequestsException[(int) retryAfterSeconds(emissionIntervalMillis)];
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new TooManyRequestsException(message, i + 1);
+        }
+    }
+
+    static BucketPolicy of(String name, int capacity, int refillPerMinute) {
+        return new BucketPolicy(name, capacity, Math.max(1, 60_000L / refillPerMinute));
+    }
+
+    long emissionIntervalMillis() {
+        return emissionIntervalMillis;
+    }
+
+    /**
+     * How far ahead of now the arrival time may go, a bucket idle for that long is full.
+     */
+    long burstMillis() {
+        return capacity * emissionIntervalMillis;
+    }
+
+    TooManyRequestsException rejection(long waitMillis) {
+        int index = (int) Math.min(retryAfterSeconds(waitMillis), rejections.length) - 1;
+        return rejections[index];
+    }
+
+    private static long retryAfterSeconds(long waitMillis) {
+        return Math.max(1, (waitMillis + 999) / 1000);
+    }
+}
@@ -0,0 +1,90 @@
+package com.efrei.usermicroservice.security;
+
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import com.efrei.usermicroservice.exceptions.custom.UnauthorizedException;
+import com.efrei.usermicroservice.exceptions.custom.UserMicroserviceException;
+import com.efrei.usermicroservice.utils.JWTUtils;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Verifies the bearer token once per request and exposes its claims as an {@link AuthenticatedUser}.
+ * <p>
+ * A request without an {@code Authorization} header goes through anonymously, the endpoints that need a caller
+ * refuse it later. A header that is present but malformed, or a token that does not verify, is answered with
+ * a 401 right here, before any controller, service or database work, except on the endpoints open to anonymous
+ * callers: there the header is ignored, a client with an expired token must still be able to refresh or log in.
+ */
+@Component
+@Profile("!reactive")
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    // any method, POST /user is also open to anonymous callers
+    private static final Set<String> PUBLIC_PATHS = Set.of("/login", "/token/refresh", "/public_key");
+
+    JWTUtils jwtUtils;
+
+    public JwtAuthenticationFilter(JWTUtils jwtUtils) {
+        this.jwtUtils = jwtUtils;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String authorizationHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorizationHeader == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String jwt = JWTUtils.extractBearerToken(authorizationHeader);
+        if (jwt == null) {
+            rejectOrContinue(request, response, filterChain, UnauthorizedException.MALFORMED_HEADER);
+            return;
+        }
+
+        AuthenticatedUser authenticatedUser;
+        try {
+            authenticatedUser = AuthenticatedUser.fromClaims(jwtUtils.validateJwt(jwt));
+        } catch (JWTException e) {
+            rejectOrContinue(request, response, filterChain, e);
+            return;
+        }
+        request.setAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE, authenticatedUser);
+        filterChain.doFilter(request, response);
+    }
+
+    private static boolean isAnonymousAllowed(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return PUBLIC_PATHS.contains(path) || ("POST".equals(request.getMethod()) && "/user".equals(path));
+    }
+
+    private void rejectOrContinue(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                                  UserMicroserviceException e) throws ServletException, IOException {
+        if (isAnonymousAllowed(request)) {
+            filterChain.doFilter(request, response);
+        } else {
+            reject(response, e);
+        }
+    }
+
+    private void reject(HttpServletResponse response, UserMicroserviceException e) throws IOException {
+        response.setStatus(e.getErrorCode().getStatus().value());
+        if (e.getErrorCode().isBearerChallenge()) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        }
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        response.setContentLength(e.getProblemBody().length);
+        response.getOutputStream().write(e.getProblemBody());
+    }
+}
@@ -0,0 +1,74 @@
+package com.efrei.usermicroservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process limiter, limits hold per replica. Each bucket is one {@link AtomicLong} updated by compare-and-set,
+ * the buckets live in bounded Caffeine caches (striped, lock-free reads) and are dropped once idle for a full
+ * refill, when forgetting them changes nothing.
+ */
+@Component
+@ConditionalOnProperty(name = "login.rate-limit.mode", havingValue = "local", matchIfMissing = true)
+public class LocalLoginRateLimiter implements LoginRateLimiter {
+
+    private final BucketPolicy emailPolicy;
+
+    private final BucketPolicy ipPolicy;
+
+    private final Cache<String, AtomicLong> emailBuckets;
+
+    private final Cache<String, AtomicLong> ipBuckets;
+
+    public LocalLoginRateLimiter(MeterRegistry meterRegistry,
+                                 @Value("${login.rate-limit.email.capacity}") int emailCapacity,
+                                 @Value("${login.rate-limit.email.refill-per-minute}") int emailRefillPerMinute,
+                                 @Value("${login.rate-limit.ip.capacity}") int ipCapacity,
+                                 @Value("${login.rate-limit.ip.refill-per-minute}") int ipRefillPerMinute,
+                                 @Value("${login.rate-limit.max-keys}") long maxKeys) {
+        this.emailPolicy = BucketPolicy.of("email", emailCapacity, emailRefillPerMinute);
+        this.ipPolicy = BucketPolicy.of("adresse IP", ipCapacity, ipRefillPerMinute);
+        this.emailBuckets = buckets(emailPolicy, maxKeys);
+        this.ipBuckets = buckets(ipPolicy, maxKeys);
+        CaffeineCacheMetrics.monitor(meterRegistry, emailBuckets, "login.rate-limit.email");
+        CaffeineCacheMetrics.monitor(meterRegistry, ipBuckets, "login.rate-limit.ip");
+    }
+
+    @Override
+    public void acquire(String email, String clientIp) {
+        long now = System.currentTimeMillis();
+        acquire(ipBuckets, ipPolicy, clientIp == null ? "" : clientIp, now);
+        acquire(emailBuckets, emailPolicy, LoginRateLimiter.normalizeEmail(email), now);
+    }
+
+    private static void acquire(Cache<String, AtomicLong> buckets, BucketPolicy policy, String key, long now) {
+        AtomicLong arrivalTime = buckets.get(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = arrivalTime.get();
+            long next = Math.max(current, now) + policy.emissionIntervalMillis();
+            long ahead = next - now - policy.burstMillis();
+            if (ahead > 0) {
+                throw policy.rejection(ahead);
+            }
+            if (arrivalTime.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private static Cache<String, AtomicLong> buckets(BucketPolicy policy, long maxKeys) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofMillis(policy.burstMillis()))
+                .recordStats()
+                .build();
+    }
+}
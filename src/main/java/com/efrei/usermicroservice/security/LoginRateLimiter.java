@@ -0,0 +1,22 @@
+package com.efrei.usermicroservice.security;
+
+/**
+ * Throttles login attempts per email and per client IP, before the user lookup and the password KDF.
+ * <p>
+ * Both keys use a token bucket implemented as a GCRA: a bucket is a single "theoretical arrival time",
+ * pushed forward by one emission interval per attempt, and an attempt is refused when that time would be
+ * more than a full bucket ahead of now. A bucket left alone long enough is full again, so it can be forgotten.
+ */
+public interface LoginRateLimiter {
+
+    /**
+     * Consumes one attempt from the IP bucket then from the email bucket.
+     *
+     * @throws com.efrei.usermicroservice.exceptions.custom.TooManyRequestsException when either bucket is empty
+     */
+    void acquire(String email, String clientIp);
+
+    static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase();
+    }
+}
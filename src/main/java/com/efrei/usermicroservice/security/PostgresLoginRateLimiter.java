@@ -0,0 +1,63 @@
+package com.efrei.usermicroservice.security;
+
+import com.efrei.usermicroservice.repository.LoginRateLimitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limiter shared by every replica through the {@code login_rate_limit} table, at the cost of one
+ * single-statement upsert per bucket and login attempt. Full buckets are purged periodically.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "login.rate-limit.mode", havingValue = "postgres")
+public class PostgresLoginRateLimiter implements LoginRateLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgresLoginRateLimiter.class);
+
+    LoginRateLimitRepository loginRateLimitRepository;
+
+    private final BucketPolicy emailPolicy;
+
+    private final BucketPolicy ipPolicy;
+
+    public PostgresLoginRateLimiter(LoginRateLimitRepository loginRateLimitRepository,
+                                    @Value("${login.rate-limit.email.capacity}") int emailCapacity,
+                                    @Value("${login.rate-limit.email.refill-per-minute}") int emailRefillPerMinute,
+                                    @Value("${login.rate-limit.ip.capacity}") int ipCapacity,
+                                    @Value("${login.rate-limit.ip.refill-per-minute}") int ipRefillPerMinute) {
+        this.loginRateLimitRepository = loginRateLimitRepository;
+        this.emailPolicy = BucketPolicy.of("email", emailCapacity, emailRefillPerMinute);
+        this.ipPolicy = BucketPolicy.of("adresse IP", ipCapacity, ipRefillPerMinute);
+    }
+
+    @Override
+    public void acquire(String email, String clientIp) {
+        long now = System.currentTimeMillis();
+        acquire(ipPolicy, "ip:" + (clientIp == null ? "" : clientIp), now);
+        acquire(emailPolicy, "email:" + LoginRateLimiter.normalizeEmail(email), now);
+    }
+
+    @Scheduled(fixedDelayString = "${login.rate-limit.purge-interval-ms}", initialDelayString = "${login.rate-limit.purge-interval-ms}")
+    public void purgeFullBuckets() {
+        try {
+            LOGGER.debug("{} compteurs de connexion supprimés", loginRateLimitRepository.deleteFull(System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Purge des compteurs de connexion impossible", e);
+        }
+    }
+
+    private void acquire(BucketPolicy policy, String bucketKey, long now) {
+        if (loginRateLimitRepository.acquire(bucketKey, now, policy.emissionIntervalMillis(), now + policy.burstMillis())) {
+            return;
+        }
+        // refused attempts can afford a second read to tell the client how long to wait
+        long tat = loginRateLimitRepository.findTat(bucketKey).orElse(now);
+        throw policy.rejection(tat + policy.emissionIntervalMillis() - policy.burstMillis() - now);
+    }
+}
@@ -0,0 +1,17 @@
+package com.efrei.usermicroservice.security;
+
+import com.efrei.usermicroservice.model.UserRole;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Restricts a controller method to callers whose token carries one of these roles.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequiresRole {
+    UserRole[] value();
+}
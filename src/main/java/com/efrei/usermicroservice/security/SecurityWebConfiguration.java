@@ -0,0 +1,75 @@
+package com.efrei.usermicroservice.security;
+
+import com.efrei.usermicroservice.exceptions.custom.UnauthorizedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Enforces {@link RequiresRole} and resolves {@link AuthenticatedUser} controller parameters
+ * from what {@link JwtAuthenticationFilter} put on the request.
+ */
+@Configuration
+@Profile("!reactive")
+public class SecurityWebConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (!(handler instanceof HandlerMethod handlerMethod)) {
+                    return true;
+                }
+                RequiresRole requiresRole = handlerMethod.getMethodAnnotation(RequiresRole.class);
+                if (requiresRole == null) {
+                    return true;
+                }
+                AuthenticatedUser authenticatedUser = (AuthenticatedUser) request.getAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE);
+                if (authenticatedUser == null) {
+                    throw UnauthorizedException.AUTHENTICATION_REQUIRED;
+                }
+                authenticatedUser.checkRole(requiresRole.value());
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new HandlerMethodArgumentResolver() {
+            @Override
+            public boolean supportsParameter(MethodParameter parameter) {
+                return AuthenticatedUser.class.equals(parameter.nestedIfOptional().getNestedParameterType());
+            }
+
+            @Override
+            public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                          NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+                Object authenticatedUser = webRequest.getAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                // an Optional<AuthenticatedUser> parameter marks an endpoint open to anonymous callers
+                if (parameter.getParameterType() == Optional.class) {
+                    return Optional.ofNullable(authenticatedUser);
+                }
+                if (authenticatedUser == null) {
+                    throw UnauthorizedException.AUTHENTICATION_REQUIRED;
+                }
+                return authenticatedUser;
+            }
+        });
+    }
+}
@@ -0,0 +1,108 @@
+package com.efrei.usermicroservice.service;
+
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.repository.UserCache;
+import com.efrei.usermicroservice.repository.UserRepository;
+import com.efrei.usermicroservice.utils.PasswordHashingEngine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Upgrades legacy or outdated password hashes after a successful login, when the plaintext is known.
+ * The rehash and the update run on a background thread so the login response never waits for them;
+ * an upgrade dropped under load simply happens on a later login.
+ */
+@Service
+@Profile("!reactive")
+public class PasswordMigrationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordMigrationService.class);
+
+    UserRepository userRepository;
+
+    UserCache userCache;
+
+    PasswordHashingEngine passwordHashingEngine;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong legacyUsers = new AtomicLong();
+
+    private final AtomicLong totalUsers = new AtomicLong();
+
+    public PasswordMigrationService(UserRepository userRepository, UserCache userCache,
+                                    PasswordHashingEngine passwordHashingEngine, MeterRegistry meterRegistry,
+                                    Environment environment,
+                                    @Value("${password.migration.queue-capacity}") int queueCapacity) {
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.passwordHashingEngine = passwordHashingEngine;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                // the task mostly waits for the hashing pool and the database, a virtual thread is enough;
+                // same condition as Spring Boot: the property is ignored before Java 21
+                Threading.VIRTUAL.isActive(environment)
+                        ? new VirtualThreadTaskExecutor("password-migration-").getVirtualThreadFactory()
+                        : new CustomizableThreadFactory("password-migration-"),
+                new ThreadPoolExecutor.DiscardPolicy());
+
+        Gauge.builder("users.password.legacy", legacyUsers, AtomicLong::get)
+                .description("Users whose password hash still uses the legacy SHA-256 scheme")
+                .register(meterRegistry);
+        Gauge.builder("users.password.legacy.ratio", this, PasswordMigrationService::legacyRatio)
+                .description("Fraction of users whose password hash still uses the legacy SHA-256 scheme")
+                .register(meterRegistry);
+    }
+
+    public void rehashIfNeeded(AppUser appUser, String password) {
+        String currentHash = appUser.getPasswordHash();
+        if (!passwordHashingEngine.needsRehash(currentHash)) {
+            return;
+        }
+        String userId = appUser.getId();
+        String email = appUser.getEmail();
+        executor.execute(() -> {
+            try {
+                String upgradedHash = passwordHashingEngine.hash(password);
+                userRepository.updatePasswordHash(userId, currentHash, upgradedHash);
+                // the cached copy still holds the old hash
+                userCache.invalidate(userId, email);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Mise à jour du hash du mot de passe impossible pour l'utilisateur {}", userId, e);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${password.migration.metrics-refresh-ms}")
+    public void refreshLegacyCount() {
+        // counting on every scrape would hit the database, so the gauges read a periodically refreshed value
+        legacyUsers.set(userRepository.countLegacyPasswordHashes());
+        totalUsers.set(userRepository.count());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private double legacyRatio() {
+        long total = totalUsers.get();
+        return total == 0 ? 0 : (double) legacyUsers.get() / total;
+    }
+}
@@ -0,0 +1,156 @@
+package com.efrei.usermicroservice.service;
+
+import com.efrei.usermicroservice.exceptions.custom.InvalidRefreshTokenException;
+import com.efrei.usermicroservice.exceptions.custom.UserMicroserviceException;
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.RefreshToken;
+import com.efrei.usermicroservice.model.dto.LoginResponse;
+import com.efrei.usermicroservice.repository.RefreshTokenRepository;
+import com.efrei.usermicroservice.repository.UserCache;
+import com.efrei.usermicroservice.utils.AuthMetrics;
+import com.efrei.usermicroservice.utils.AuthMetrics.Outcome;
+import com.efrei.usermicroservice.utils.AuthMetrics.Stage;
+import com.efrei.usermicroservice.utils.JWTUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Issues and rotates opaque refresh tokens. Tokens are 256 random bits, so a plain SHA-256 is enough
+ * to store them: a refresh is one indexed update and never runs the password KDF.
+ * <p>
+ * Each refresh consumes the presented token and hands out the next one of the same family. Presenting
+ * a token that was already consumed means it leaked: the whole family and every access token of the user
+ * are revoked, the legitimate client has to log in again. Consumed tokens are therefore kept until they expire.
+ */
+@Service
+@Profile("!reactive")
+public class RefreshTokenService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final int TOKEN_BYTES = 32;
+
+    RefreshTokenRepository refreshTokenRepository;
+
+    UserCache userCache;
+
+    JWTUtils jwtUtils;
+
+    TokenRevocationService tokenRevocationService;
+
+    AuthMetrics authMetrics;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Duration refreshTokenTtl;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserCache userCache, JWTUtils jwtUtils,
+                               TokenRevocationService tokenRevocationService, AuthMetrics authMetrics,
+                               @Value("${jwt.refresh.ttl-minutes}") long refreshTokenTtlMinutes) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userCache = userCache;
+        this.jwtUtils = jwtUtils;
+        this.tokenRevocationService = tokenRevocationService;
+        this.authMetrics = authMetrics;
+        this.refreshTokenTtl = Duration.ofMinutes(refreshTokenTtlMinutes);
+    }
+
+    public LoginResponse login(AppUser appUser) {
+        String familyId = UUID.randomUUID().toString();
+        String refreshToken = issue(appUser.getId(), familyId);
+        return new LoginResponse(jwtUtils.createJWT(appUser, familyId), refreshToken, jwtUtils.getExpiresInSeconds());
+    }
+
+    public LoginResponse refresh(String refreshToken) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            throw InvalidRefreshTokenException.MISSING;
+        }
+        String tokenHash = hash(refreshToken);
+        long consumeStart = authMetrics.start();
+        Optional<RefreshToken> consumedToken = refreshTokenRepository.consume(tokenHash, Instant.now());
+        authMetrics.record(Stage.REFRESH_TOKEN_QUERY, consumedToken.isPresent() ? Outcome.SUCCESS : Outcome.NOT_FOUND, consumeStart);
+        if (consumedToken.isEmpty()) {
+            // the failure path can afford a second lookup to tell a replay from an expired or unknown token
+            refreshTokenRepository.findByHash(tokenHash)
+                    .filter(RefreshToken::isUsed)
+                    .ifPresent(this::revokeOnReuse);
+            throw InvalidRefreshTokenException.INVALID;
+        }
+
+        RefreshToken usedToken = consumedToken.get();
+        AppUser appUser = userCache.findById(usedToken.getUserId())
+                .orElseThrow(() -> InvalidRefreshTokenException.INVALID);
+        String nextRefreshToken = issue(appUser.getId(), usedToken.getFamilyId());
+        return new LoginResponse(jwtUtils.createJWT(appUser, usedToken.getFamilyId()), nextRefreshToken, jwtUtils.getExpiresInSeconds());
+    }
+
+    /**
+     * Ends the session of a logout: the refresh tokens of its family can no longer be rotated.
+     */
+    public void revokeFamily(String familyId) {
+        refreshTokenRepository.deleteFamily(familyId);
+    }
+
+    /**
+     * Ends every session of the user, after a change of its credentials or its deletion.
+     */
+    public void revokeAll(String userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.purge-interval-ms}", initialDelayString = "${jwt.refresh.purge-interval-ms}")
+    public void purgeExpired() {
+        try {
+            LOGGER.debug("{} refresh tokens expirés supprimés", refreshTokenRepository.deleteExpired(Instant.now()));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Purge des refresh tokens expirés impossible", e);
+        }
+    }
+
+    private String issue(String userId, String familyId) {
+        byte[] randomBytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(randomBytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+
+        RefreshToken storedToken = new RefreshToken();
+        storedToken.setTokenHash(hash(refreshToken));
+        storedToken.setFamilyId(familyId);
+        storedToken.setUserId(userId);
+        storedToken.setExpiresAt(Instant.now().plus(refreshTokenTtl));
+        authMetrics.time(Stage.REFRESH_TOKEN_QUERY, () -> refreshTokenRepository.insert(storedToken));
+        return refreshToken;
+    }
+
+    private void revokeOnReuse(RefreshToken reusedToken) {
+        LOGGER.warn("Refresh token déjà utilisé présenté pour l'utilisateur {}, session révoquée", reusedToken.getUserId());
+        refreshTokenRepository.deleteFamily(reusedToken.getFamilyId());
+        // unlike a credential change, the current second is covered too: the last rotation of the stolen session
+        // may have issued an access token within it, and a legitimate client logs in again anyway
+        Instant issuedBefore = Instant.ofEpochSecond(Instant.now().getEpochSecond() + 1);
+        tokenRevocationService.revokeAllTokens(reusedToken.getUserId(), issuedBefore);
+    }
+
+    private String hash(String refreshToken) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new UserMicroserviceException("Erreur lors du hash du refresh token", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.efrei.usermicroservice.service;
+
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.model.dto.LoginResponse;
+import com.efrei.usermicroservice.repository.UserRepository;
+import com.efrei.usermicroservice.utils.JWTUtils;
+import com.efrei.usermicroservice.utils.PasswordHashingEngine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Exercises the login path once the context is up. Runners complete before the readiness state switches to
+ * accepting traffic, so a new pod only receives requests once the JWT crypto, the KDF, the JSON serializers
+ * and the connection pool are warm.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "startup.warm-up.enabled", havingValue = "true")
+public class StartupWarmUp implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    JWTUtils jwtUtils;
+
+    PasswordHashingEngine passwordHashingEngine;
+
+    UserRepository userRepository;
+
+    ObjectMapper objectMapper;
+
+    private final int iterations;
+
+    public StartupWarmUp(JWTUtils jwtUtils, PasswordHashingEngine passwordHashingEngine, UserRepository userRepository,
+                         ObjectMapper objectMapper, @Value("${startup.warm-up.iterations}") int iterations) {
+        this.jwtUtils = jwtUtils;
+        this.passwordHashingEngine = passwordHashingEngine;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws JsonProcessingException {
+        long start = System.nanoTime();
+
+        AppUser appUser = new AppUser();
+        appUser.setId(UUID.randomUUID().toString());
+        appUser.setEmail("warm-up@invalid");
+        appUser.setUserRole(UserRole.CUSTOMER);
+
+        jwtUtils.warmUp(appUser, iterations);
+        passwordHashingEngine.warmUp();
+        // opens the pool connections and prepares the login query
+        userRepository.findByEmail(appUser.getEmail());
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.writeValueAsBytes(appUser);
+            objectMapper.writeValueAsBytes(new LoginResponse("warm-up", "warm-up", 0));
+        }
+
+        LOGGER.info("Préchauffage terminé en {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+}
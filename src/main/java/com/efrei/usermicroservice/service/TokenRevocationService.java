@@ -0,0 +1,156 @@
+package com.efrei.usermicroservice.service;
+
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import com.efrei.usermicroservice.model.RevokedToken;
+import com.efrei.usermicroservice.model.UserTokenCutoff;
+import com.efrei.usermicroservice.repository.CacheInvalidationBus;
+import com.efrei.usermicroservice.repository.RevokedTokenRepository;
+import com.efrei.usermicroservice.repository.UserTokenCutoffRepository;
+import com.efrei.usermicroservice.utils.TokenRevocationList;
+import jakarta.annotation.PostConstruct;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Persists revocations in Postgres and keeps the {@link TokenRevocationList} of every replica in sync:
+ * the local list is updated right away, the other replicas through the {@link CacheInvalidationBus}
+ * and, after a missed notification, by reloading the tables.
+ */
+@Service
+@Profile("!reactive")
+public class TokenRevocationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final String INVALIDATION_KIND = "revocation";
+
+    RevokedTokenRepository revokedTokenRepository;
+
+    UserTokenCutoffRepository userTokenCutoffRepository;
+
+    TokenRevocationList tokenRevocationList;
+
+    CacheInvalidationBus cacheInvalidationBus;
+
+    // a token is still accepted for this long after its exp
+    private final Duration allowedClockSkew;
+
+    // covers every token issued before a cutoff, whatever its exact expiration
+    private final Duration maxTokenLifetime;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  UserTokenCutoffRepository userTokenCutoffRepository,
+                                  TokenRevocationList tokenRevocationList,
+                                  CacheInvalidationBus cacheInvalidationBus,
+                                  @Value("${jwt.expiration-minutes}") float expirationMinutes,
+                                  @Value("${jwt.allowed-clock-skew-seconds}") int allowedClockSkewSeconds) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.userTokenCutoffRepository = userTokenCutoffRepository;
+        this.tokenRevocationList = tokenRevocationList;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.allowedClockSkew = Duration.ofSeconds(allowedClockSkewSeconds);
+        this.maxTokenLifetime = Duration.ofSeconds((long) (expirationMinutes * 60)).plus(allowedClockSkew);
+
+        cacheInvalidationBus.register(INVALIDATION_KIND, new CacheInvalidationBus.InvalidationListener() {
+            @Override
+            public void onInvalidation(String payload) {
+                // "jti|<jti>|<expiresAt>" or "user|<userId>|<issuedBefore>|<expiresAt>", epoch seconds
+                String[] parts = payload.split("\\|");
+                if ("jti".equals(parts[0]) && parts.length == 3) {
+                    tokenRevocationList.revokeJti(parts[1], Instant.ofEpochSecond(Long.parseLong(parts[2])));
+                } else if ("user".equals(parts[0]) && parts.length == 4) {
+                    tokenRevocationList.revokeUserTokens(parts[1], Long.parseLong(parts[2]),
+                            Instant.ofEpochSecond(Long.parseLong(parts[3])));
+                }
+            }
+
+            @Override
+            public void onResync() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * Revokes a single token, typically on logout. It stays revoked until its own expiration.
+     */
+    public void revokeToken(JwtClaims claims) {
+        String jti;
+        Instant expiresAt;
+        try {
+            jti = claims.getJwtId();
+            expiresAt = Instant.ofEpochSecond(claims.getExpirationTime().getValue()).plus(allowedClockSkew);
+        } catch (MalformedClaimException e) {
+            throw JWTException.INVALID;
+        }
+        if (jti == null) {
+            throw JWTException.INVALID;
+        }
+
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setJti(jti);
+        revokedToken.setExpiresAt(expiresAt);
+        revokedTokenRepository.save(revokedToken);
+
+        tokenRevocationList.revokeJti(jti, expiresAt);
+        cacheInvalidationBus.publish(INVALIDATION_KIND, "jti|" + jti + "|" + expiresAt.getEpochSecond());
+    }
+
+    /**
+     * Revokes the tokens issued to the user before the current second, after a change of its email, role
+     * or password, or its deletion. Token timestamps have a one second resolution: a token issued within the
+     * current second stays valid, so that a login right after the change works, and the caller revokes its own
+     * token explicitly when it belongs to the user.
+     */
+    public void revokeAllTokens(String userId) {
+        revokeAllTokens(userId, Instant.ofEpochSecond(Instant.now().getEpochSecond()));
+    }
+
+    /**
+     * Revokes the tokens issued to the user before {@code issuedBefore}, a whole second.
+     */
+    public void revokeAllTokens(String userId, Instant issuedBefore) {
+        Instant expiresAt = issuedBefore.plus(maxTokenLifetime);
+
+        userTokenCutoffRepository.advance(userId, issuedBefore, expiresAt);
+
+        tokenRevocationList.revokeUserTokens(userId, issuedBefore.getEpochSecond(), expiresAt);
+        cacheInvalidationBus.publish(INVALIDATION_KIND, "user|" + userId + "|" + issuedBefore.getEpochSecond()
+                + "|" + expiresAt.getEpochSecond());
+    }
+
+    // before the first request is served, a revoked token must never be accepted
+    @PostConstruct
+    public void load() {
+        Instant now = Instant.now();
+        for (RevokedToken revokedToken : revokedTokenRepository.findByExpiresAtAfter(now)) {
+            tokenRevocationList.revokeJti(revokedToken.getJti(), revokedToken.getExpiresAt());
+        }
+        for (UserTokenCutoff userTokenCutoff : userTokenCutoffRepository.findByExpiresAtAfter(now)) {
+            tokenRevocationList.revokeUserTokens(userTokenCutoff.getUserId(),
+                    userTokenCutoff.getIssuedBefore().getEpochSecond(), userTokenCutoff.getExpiresAt());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms}", initialDelayString = "${jwt.revocation.purge-interval-ms}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        try {
+            // every replica runs the same idempotent delete, there is no need to elect one
+            int purgedRows = revokedTokenRepository.deleteExpired(now) + userTokenCutoffRepository.deleteExpired(now);
+            LOGGER.debug("{} révocations expirées supprimées", purgedRows);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Purge des révocations expirées impossible", e);
+        }
+        tokenRevocationList.purgeExpired(now);
+    }
+}
@@ -0,0 +1,227 @@
+package com.efrei.usermicroservice.service;
+
+import com.efrei.usermicroservice.exceptions.custom.BadRequestException;
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.model.dto.ImportRowResult;
+import com.efrei.usermicroservice.model.dto.ImportRowResult.Status;
+import com.efrei.usermicroservice.model.dto.UserToCreate;
+import com.efrei.usermicroservice.repository.UserJdbcRepository;
+import com.efrei.usermicroservice.repository.UserRepository;
+import com.efrei.usermicroservice.utils.PasswordHashingEngine;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Creates many users from a single streamed request body, either a JSON array of {@link UserToCreate}
+ * or CSV lines {@code role,email,password} (optional header, no quoting, the password is the last column).
+ * <p>
+ * Rows are handled in chunks: one query checks which emails already exist, the passwords are hashed in parallel
+ * and the chunk is written as one JDBC batch. Each chunk is committed on its own, so a JSON body that turns out
+ * to be malformed half-way keeps the rows before it: they are written and the report ends with a
+ * {@link Status#MALFORMED} entry at the row where parsing stopped.
+ */
+@Service
+@Profile("!reactive")
+public class UserImportService {
+
+    private static final String CSV_HEADER = "role,email,password";
+
+    UserRepository userRepository;
+
+    UserJdbcRepository userJdbcRepository;
+
+    ObjectMapper objectMapper;
+
+    PasswordHashingEngine passwordHashingEngine;
+
+    private final int chunkSize;
+
+    public UserImportService(UserRepository userRepository, UserJdbcRepository userJdbcRepository,
+                             ObjectMapper objectMapper, PasswordHashingEngine passwordHashingEngine,
+                             @Value("${user.import.chunk-size}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.userJdbcRepository = userJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.passwordHashingEngine = passwordHashingEngine;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<ImportRowResult> importJson(InputStream inputStream) {
+        UserImport userImport = new UserImport();
+        try (JsonParser parser = objectMapper.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Le corps de la requête doit être un tableau JSON");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                userImport.add(readUserToCreate((JsonNode) objectMapper.readTree(parser)));
+            }
+        } catch (JsonProcessingException e) {
+            if (userImport.rowCount == 0) {
+                throw new BadRequestException("JSON invalide, aucune ligne n'a été importée");
+            }
+            return userImport.abort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return userImport.finish();
+    }
+
+    public List<ImportRowResult> importCsv(InputStream inputStream) {
+        UserImport userImport = new UserImport();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8))) {
+            boolean firstLine = true;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (firstLine && line.replace(" ", "").equalsIgnoreCase(CSV_HEADER)) {
+                    firstLine = false;
+                    continue;
+                }
+                firstLine = false;
+                userImport.add(readUserToCreate(line));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return userImport.finish();
+    }
+
+    private UserToCreate readUserToCreate(JsonNode node) {
+        try {
+            return objectMapper.treeToValue(node, UserToCreate.class);
+        } catch (JsonProcessingException e) {
+            // unknown role and the like: reported as an invalid row, the rest of the import goes on
+            return new UserToCreate(null, node.path("email").asText(null), null);
+        }
+    }
+
+    private UserToCreate readUserToCreate(String line) {
+        String[] columns = line.split(",", 3);
+        String email = columns.length > 1 ? columns[1].trim() : null;
+        if (columns.length < 3) {
+            return new UserToCreate(null, email, null);
+        }
+        try {
+            return new UserToCreate(UserRole.valueOf(columns[0].trim().toUpperCase(Locale.ROOT)), email, columns[2]);
+        } catch (IllegalArgumentException e) {
+            return new UserToCreate(null, email, columns[2]);
+        }
+    }
+
+    private static boolean isValid(UserToCreate userToCreate) {
+        return userToCreate != null && userToCreate.role() != null
+                && userToCreate.email() != null && !userToCreate.email().isBlank()
+                && userToCreate.password() != null && !userToCreate.password().isEmpty();
+    }
+
+    /**
+     * State of one import: the report, in row order, and the rows of the current chunk still to be written.
+     */
+    private class UserImport {
+
+        private final List<ImportRowResult> results = new ArrayList<>();
+
+        private final Set<String> seenEmails = new HashSet<>();
+
+        private final List<PendingRow> chunk = new ArrayList<>();
+
+        private int rowCount;
+
+        void add(UserToCreate userToCreate) {
+            int row = ++rowCount;
+            String email = userToCreate == null ? null : userToCreate.email();
+            if (!isValid(userToCreate)) {
+                results.add(new ImportRowResult(row, email, Status.INVALID, null));
+                return;
+            }
+            if (!seenEmails.add(email)) {
+                results.add(new ImportRowResult(row, email, Status.DUPLICATE_IN_REQUEST, null));
+                return;
+            }
+            // filled in when the chunk is written
+            results.add(null);
+            chunk.add(new PendingRow(row, userToCreate));
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        List<ImportRowResult> finish() {
+            flush();
+            return results;
+        }
+
+        /**
+         * Writes the rows read so far and reports the row that could not be parsed.
+         */
+        List<ImportRowResult> abort() {
+            flush();
+            results.add(new ImportRowResult(rowCount + 1, null, Status.MALFORMED, null));
+            return results;
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            Set<String> existingEmails = new HashSet<>(userRepository.findExistingEmails(
+                    chunk.stream().map(pendingRow -> pendingRow.userToCreate().email()).toList()));
+
+            List<PendingRow> rowsToInsert = new ArrayList<>();
+            for (PendingRow pendingRow : chunk) {
+                if (existingEmails.contains(pendingRow.userToCreate().email())) {
+                    report(pendingRow, Status.ALREADY_EXISTS, null);
+                } else {
+                    rowsToInsert.add(pendingRow);
+                }
+            }
+
+            List<String> passwordHashes = passwordHashingEngine.hashAll(
+                    rowsToInsert.stream().map(pendingRow -> pendingRow.userToCreate().password()).toList());
+            List<AppUser> appUsers = new ArrayList<>(rowsToInsert.size());
+            for (int i = 0; i < rowsToInsert.size(); i++) {
+                UserToCreate userToCreate = rowsToInsert.get(i).userToCreate();
+                AppUser appUser = new AppUser();
+                // generated here rather than by Hibernate so that the whole chunk goes out in one batch
+                appUser.setId(UUID.randomUUID().toString());
+                appUser.setUserRole(userToCreate.role());
+                appUser.setEmail(userToCreate.email());
+                appUser.setPasswordHash(passwordHashes.get(i));
+                appUsers.add(appUser);
+            }
+
+            boolean[] inserted = appUsers.isEmpty() ? new boolean[0] : userJdbcRepository.insertAll(appUsers);
+            for (int i = 0; i < inserted.length; i++) {
+                // a user created with the same email since the check above
+                report(rowsToInsert.get(i), inserted[i] ? Status.CREATED : Status.ALREADY_EXISTS,
+                        inserted[i] ? appUsers.get(i).getId() : null);
+            }
+            chunk.clear();
+        }
+
+        private void report(PendingRow pendingRow, Status status, String id) {
+            results.set(pendingRow.row() - 1,
+                    new ImportRowResult(pendingRow.row(), pendingRow.userToCreate().email(), status, id));
+        }
+    }
+
+    private record PendingRow(int row, UserToCreate userToCreate) {}
+}
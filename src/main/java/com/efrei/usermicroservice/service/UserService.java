@@ -3,15 +3,23 @@ package com.efrei.usermicroservice.service;
 import com.efrei.usermicroservice.model.AppUser;
 import com.efrei.usermicroservice.model.dto.LoginAttempt;
 import com.efrei.usermicroservice.model.dto.LoginResponse;
+import com.efrei.usermicroservice.model.dto.UserLookupResult;
+import com.efrei.usermicroservice.model.dto.UserPage;
 import com.efrei.usermicroservice.model.dto.UserToCreate;
+import com.efrei.usermicroservice.security.AuthenticatedUser;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
 public interface UserService {
-    AppUser createUser(UserToCreate userToCreate);
-    AppUser getUserById(String bearerToken, String userId);
-    List<AppUser> getAllUser(String bearerToken);
-    LoginResponse login(LoginAttempt loginAttempt);
-    AppUser modifyUser(String bearerToken, String userId, UserToCreate userToCreate);
-    void deleteUser(String bearerToken, String userId);
+    AppUser createUser(AuthenticatedUser authenticatedUser, UserToCreate userToCreate);
+    AppUser getUserById(String userId);
+    List<UserLookupResult> getUsersByIds(List<String> userIds);
+    UserPage getUsersPage(String cursor, Integer size);
+    StreamingResponseBody streamAllUsers();
+    LoginResponse login(LoginAttempt loginAttempt, String clientIp);
+    LoginResponse refresh(String refreshToken);
+    void logout(AuthenticatedUser authenticatedUser);
+    AppUser modifyUser(AuthenticatedUser authenticatedUser, String userId, UserToCreate userToCreate);
+    void deleteUser(AuthenticatedUser authenticatedUser, String userId);
 }
@@ -1,123 +1,255 @@
 package com.efrei.usermicroservice.service;
 
+import com.efrei.usermicroservice.exceptions.custom.BadRequestException;
 import com.efrei.usermicroservice.exceptions.custom.EmailAlreadyExistingException;
+import com.efrei.usermicroservice.exceptions.custom.ForbiddenException;
 import com.efrei.usermicroservice.exceptions.custom.IncorrectPasswordException;
-import com.efrei.usermicroservice.exceptions.custom.UserMicroserviceException;
 import com.efrei.usermicroservice.exceptions.custom.UserNotFoundException;
 import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
 import com.efrei.usermicroservice.model.dto.LoginResponse;
 import com.efrei.usermicroservice.model.dto.UserToCreate;
 import com.efrei.usermicroservice.model.dto.LoginAttempt;
+import com.efrei.usermicroservice.model.dto.UserLookupResult;
+import com.efrei.usermicroservice.model.dto.UserPage;
+import com.efrei.usermicroservice.repository.UserCache;
+import com.efrei.usermicroservice.repository.UserJdbcRepository;
 import com.efrei.usermicroservice.repository.UserRepository;
-import com.efrei.usermicroservice.utils.JWTUtils;
+import com.efrei.usermicroservice.security.AuthenticatedUser;
+import com.efrei.usermicroservice.security.LoginRateLimiter;
+import com.efrei.usermicroservice.utils.AuthMetrics;
+import com.efrei.usermicroservice.utils.AuthMetrics.Outcome;
+import com.efrei.usermicroservice.utils.AuthMetrics.Stage;
+import com.efrei.usermicroservice.utils.PageCursor;
+import com.efrei.usermicroservice.utils.PasswordHashingEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @Service
+@Profile("!reactive")
 public class UserServiceImpl implements UserService{
 
     UserRepository userRepository;
 
-    JWTUtils jwtUtils;
+    UserCache userCache;
+
+    UserJdbcRepository userJdbcRepository;
+
+    ObjectMapper objectMapper;
+
+    PasswordHashingEngine passwordHashingEngine;
+
+    PasswordMigrationService passwordMigrationService;
+
+    TokenRevocationService tokenRevocationService;
+
+    RefreshTokenService refreshTokenService;
 
-    public UserServiceImpl(UserRepository userRepository, JWTUtils jwtUtils) {
+    LoginRateLimiter loginRateLimiter;
+
+    AuthMetrics authMetrics;
+
+    private final int defaultPageSize;
+
+    private final int maxPageSize;
+
+    private final int maxBatchSize;
+
+    public UserServiceImpl(UserRepository userRepository, UserCache userCache, UserJdbcRepository userJdbcRepository,
+                           ObjectMapper objectMapper,
+                           PasswordHashingEngine passwordHashingEngine, PasswordMigrationService passwordMigrationService,
+                           TokenRevocationService tokenRevocationService, RefreshTokenService refreshTokenService,
+                           LoginRateLimiter loginRateLimiter, AuthMetrics authMetrics,
+                           @Value("${user.page.default-size}") int defaultPageSize,
+                           @Value("${user.page.max-size}") int maxPageSize,
+                           @Value("${user.batch.max-size}") int maxBatchSize) {
         this.userRepository = userRepository;
-        this.jwtUtils = jwtUtils;
+        this.userCache = userCache;
+        this.userJdbcRepository = userJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchSize = maxBatchSize;
+        this.passwordHashingEngine = passwordHashingEngine;
+        this.passwordMigrationService = passwordMigrationService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.loginRateLimiter = loginRateLimiter;
+        this.authMetrics = authMetrics;
     }
 
     @Override
-    public AppUser createUser(UserToCreate userToCreate){
-        userRepository.findByEmail(userToCreate.email()).ifPresent(user -> {
-            throw new EmailAlreadyExistingException("Un utilisateur avec cette adresse email existe déjà.");
-        });
-
+    public AppUser createUser(AuthenticatedUser authenticatedUser, UserToCreate userToCreate){
+        if (authenticatedUser == null) {
+            // self-registration only ever creates customers, whatever the body says
+            userToCreate = new UserToCreate(UserRole.CUSTOMER, userToCreate.email(), userToCreate.password());
+        } else if (!authenticatedUser.isAgent() && userToCreate.role() != UserRole.CUSTOMER) {
+            throw new ForbiddenException("Seul un agent peut créer un utilisateur avec ce rôle");
+        }
         AppUser appUser = mapUserToCreateIntoUser(userToCreate);
-        return userRepository.save(appUser);
+        appUser.setId(UUID.randomUUID().toString());
+
+        // the unique constraint on the email is the check, concurrent creations cannot both pass it
+        if (!userJdbcRepository.insert(appUser)) {
+            throw EmailAlreadyExistingException.INSTANCE;
+        }
+        userCache.put(appUser);
+        return appUser;
+    }
+
+    @Override
+    public AppUser getUserById(String userId){
+        return userCache.findById(userId)
+                .orElseThrow(() -> UserNotFoundException.INSTANCE);
+    }
+
+    @Override
+    public List<UserLookupResult> getUsersByIds(List<String> userIds){
+        if (userIds == null || userIds.isEmpty()) {
+            return List.of();
+        }
+        if (userIds.size() > maxBatchSize) {
+            throw new BadRequestException("Impossible de demander plus de " + maxBatchSize + " utilisateurs à la fois");
+        }
+
+        Map<String, AppUser> appUsers = userCache.findAllById(new LinkedHashSet<>(userIds));
+        // same order as the request, duplicates included, with an explicit marker for unknown ids
+        return userIds.stream()
+                .map(userId -> new UserLookupResult(userId, appUsers.containsKey(userId), appUsers.get(userId)))
+                .toList();
     }
 
     @Override
-    public AppUser getUserById(String bearerToken, String userId){
-        jwtUtils.validateJwt(bearerToken.substring(7));
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
+    public UserPage getUsersPage(String cursor, Integer size){
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        String lastId = PageCursor.decode(cursor);
+
+        // one extra row tells whether there is a next page without a count query
+        List<AppUser> users = userRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(pageSize + 1));
+        if (users.size() <= pageSize) {
+            return new UserPage(users, null);
+        }
+        List<AppUser> page = users.subList(0, pageSize);
+        return new UserPage(page, PageCursor.encode(page.get(pageSize - 1).getId()));
     }
 
     @Override
-    public List<AppUser> getAllUser(String bearerToken){
-        jwtUtils.validateJwt(bearerToken.substring(7));
-        return userRepository.findAll();
+    public StreamingResponseBody streamAllUsers(){
+        return outputStream -> userJdbcRepository.streamAll(appUser -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(appUser));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
     @Override
-    public LoginResponse login(LoginAttempt loginAttempt){
-        AppUser appUser =  userRepository.findByEmail(loginAttempt.email())
-                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + loginAttempt.email()));
+    public LoginResponse login(LoginAttempt loginAttempt, String clientIp){
+        // before the lookup and the KDF, a refused attempt costs nothing else
+        authMetrics.time(Stage.RATE_LIMIT, () -> loginRateLimiter.acquire(loginAttempt.email(), clientIp));
+
+        long lookupStart = authMetrics.start();
+        Optional<AppUser> foundUser = userCache.findByEmail(loginAttempt.email());
+        authMetrics.record(Stage.USER_LOOKUP, foundUser.isPresent() ? Outcome.SUCCESS : Outcome.NOT_FOUND, lookupStart);
+        if (foundUser.isEmpty()) {
+            // same KDF cost and same answer as a wrong password, the response does not tell whether the email exists
+            passwordHashingEngine.verifyDummy(loginAttempt.password());
+            throw IncorrectPasswordException.INSTANCE;
+        }
+        AppUser appUser = foundUser.get();
 
         if(!isAttemptedPasswordCorrect(loginAttempt.password(), appUser.getPasswordHash())){
-            throw new IncorrectPasswordException("Incorrect password for the user " + loginAttempt.email());
+            throw IncorrectPasswordException.INSTANCE;
         }
 
-        return new LoginResponse(jwtUtils.createJWT(appUser));
+        passwordMigrationService.rehashIfNeeded(appUser, loginAttempt.password());
+
+        return refreshTokenService.login(appUser);
     }
 
     @Override
-    public AppUser modifyUser(String bearerToken, String userId, UserToCreate userToCreate) {
-        jwtUtils.validateJwt(bearerToken.substring(7));
+    public LoginResponse refresh(String refreshToken) {
+        return refreshTokenService.refresh(refreshToken);
+    }
 
-        userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
+    @Override
+    public void logout(AuthenticatedUser authenticatedUser) {
+        tokenRevocationService.revokeToken(authenticatedUser.claims());
+        String sessionId = authenticatedUser.sessionId();
+        if (sessionId != null) {
+            refreshTokenService.revokeFamily(sessionId);
+        }
+    }
 
-        userRepository.findByEmail(userToCreate.email()).ifPresent(user -> {
-            throw new EmailAlreadyExistingException("Un utilisateur avec cette adresse email existe déjà.");
-        });
+    @Override
+    public AppUser modifyUser(AuthenticatedUser authenticatedUser, String userId, UserToCreate userToCreate) {
+        authenticatedUser.checkSelfOrAgent(userId);
+        if (!authenticatedUser.isAgent() && userToCreate.role() != authenticatedUser.role()) {
+            throw new ForbiddenException("Seul un agent peut modifier le rôle d'un utilisateur");
+        }
 
         AppUser appUser = mapUserToCreateIntoUser(userToCreate);
         appUser.setId(userId);
 
-        return userRepository.save(appUser);
+        String oldEmail;
+        try {
+            oldEmail = userJdbcRepository.update(appUser)
+                    .orElseThrow(() -> UserNotFoundException.INSTANCE);
+        } catch (DuplicateKeyException e) {
+            throw EmailAlreadyExistingException.INSTANCE;
+        }
+        // the old email must stop resolving to this user
+        userCache.invalidate(userId, oldEmail);
+        userCache.put(appUser);
+        // existing tokens carry the old email and role, or were obtained with the old password
+        revokeSessions(authenticatedUser, userId);
+        return appUser;
     }
 
     @Override
-    public void deleteUser(String bearerToken, String userId) {
-        jwtUtils.validateJwt(bearerToken.substring(7));
+    public void deleteUser(AuthenticatedUser authenticatedUser, String userId) {
+        authenticatedUser.checkSelfOrAgent(userId);
 
-        userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
+        String email = userJdbcRepository.deleteById(userId)
+                .orElseThrow(() -> UserNotFoundException.INSTANCE);
+        userCache.invalidate(userId, email);
+        revokeSessions(authenticatedUser, userId);
+    }
 
-        userRepository.deleteById(userId);
+    private void revokeSessions(AuthenticatedUser authenticatedUser, String userId) {
+        tokenRevocationService.revokeAllTokens(userId);
+        if (authenticatedUser.userId().equals(userId)) {
+            // the cutoff spares the current second, the caller's own token may have been issued within it
+            tokenRevocationService.revokeToken(authenticatedUser.claims());
+        }
+        refreshTokenService.revokeAll(userId);
     }
 
     private boolean isAttemptedPasswordCorrect(String attemptedPassword, String hashedDbPassword){
-        String hashedAttemptedPassword = hashStringUsingSHA256(attemptedPassword);
-        return hashedAttemptedPassword.equals(hashedDbPassword);
+        return passwordHashingEngine.verify(attemptedPassword, hashedDbPassword);
     }
 
     private AppUser mapUserToCreateIntoUser(UserToCreate userToCreate){
         AppUser appUser = new AppUser();
         appUser.setUserRole(userToCreate.role());
         appUser.setEmail(userToCreate.email());
-        appUser.setPasswordHash(hashStringUsingSHA256(userToCreate.password()));
+        appUser.setPasswordHash(passwordHashingEngine.hash(userToCreate.password()));
         return appUser;
     }
 
-    private String hashStringUsingSHA256(String input) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(input.getBytes());
-            StringBuilder hexString = new StringBuilder();
-
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new UserMicroserviceException("Erreur lors du hash d'une chaine de caractère", e);
-        }
-    }
-
 }
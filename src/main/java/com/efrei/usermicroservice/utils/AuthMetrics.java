@@ -0,0 +1,132 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.exceptions.custom.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * One {@code auth.stage} timer per stage of the authentication path and outcome, both tags taking a handful
+ * of fixed values. Timers are registered on first use and then reused, recording costs a {@link System#nanoTime()}
+ * pair and an array read. Histograms and percentiles are switched on from the {@code management.metrics.distribution}
+ * properties.
+ */
+@Component
+public class AuthMetrics {
+
+    public enum Stage {
+        KEY_LOAD("key-load"),
+        TOKEN_SIGN("token-sign"),
+        TOKEN_VERIFY("token-verify"),
+        PASSWORD_HASH("password-hash"),
+        PASSWORD_VERIFY("password-verify"),
+        USER_LOOKUP("user-lookup"),
+        USER_WRITE("user-write"),
+        REFRESH_TOKEN_QUERY("refresh-token-query"),
+        RATE_LIMIT("rate-limit"),
+        SERIALIZATION("serialization");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum Outcome {
+        SUCCESS("success"),
+        EXPIRED("expired"),
+        INVALID("invalid"),
+        REVOKED("revoked"),
+        NOT_FOUND("not-found"),
+        WRONG_PASSWORD("wrong-password"),
+        REJECTED("rejected"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public static final String TIMER_NAME = "auth.stage";
+
+    private static final int OUTCOMES = Outcome.values().length;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(Stage.values().length * OUTCOMES);
+
+    public AuthMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void record(Stage stage, Outcome outcome, long startNanos) {
+        timer(stage, outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Times {@code work}, the outcome is derived from the exception it throws, if any.
+     */
+    public <T> T time(Stage stage, Supplier<T> work) {
+        long startNanos = start();
+        try {
+            T result = work.get();
+            record(stage, Outcome.SUCCESS, startNanos);
+            return result;
+        } catch (RuntimeException e) {
+            record(stage, outcomeOf(e), startNanos);
+            throw e;
+        }
+    }
+
+    public void time(Stage stage, Runnable work) {
+        time(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private static Outcome outcomeOf(RuntimeException e) {
+        if (e instanceof ExpiredJWTException) {
+            return Outcome.EXPIRED;
+        }
+        if (e instanceof JWTException || e instanceof InvalidRefreshTokenException || e instanceof UnauthorizedException) {
+            return Outcome.INVALID;
+        }
+        if (e instanceof UserNotFoundException) {
+            return Outcome.NOT_FOUND;
+        }
+        if (e instanceof IncorrectPasswordException) {
+            return Outcome.WRONG_PASSWORD;
+        }
+        if (e instanceof TooManyRequestsException) {
+            return Outcome.REJECTED;
+        }
+        return Outcome.ERROR;
+    }
+
+    private Timer timer(Stage stage, Outcome outcome) {
+        int index = stage.ordinal() * OUTCOMES + outcome.ordinal();
+        Timer timer = timers.get(index);
+        if (timer == null) {
+            // registering twice returns the same meter, a race here is harmless
+            timer = Timer.builder(TIMER_NAME)
+                    .description("Duration of one stage of the authentication path")
+                    .tag("stage", stage.tag)
+                    .tag("outcome", outcome.tag)
+                    .register(meterRegistry);
+            timers.set(index, timer);
+        }
+        return timer;
+    }
+}
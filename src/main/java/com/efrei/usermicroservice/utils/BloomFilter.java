@@ -0,0 +1,73 @@
+package com.efrei.usermicroservice.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Fixed-size Bloom filter over strings, safe for concurrent adds and reads without locking.
+ * It only answers "definitely absent" or "maybe present"; entries cannot be removed, the owner rebuilds it instead.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+
+    private final int bitCount;
+
+    private final int hashCount;
+
+    BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int insertions = Math.max(1, expectedInsertions);
+        // optimal sizing: m = -n ln(p) / ln(2)^2 bits and k = m/n ln(2) hash functions
+        long optimalBits = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(optimalBits, Integer.MAX_VALUE - 64L));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / insertions * Math.log(2)));
+        this.words = new AtomicLongArray((bitCount + 63) >>> 6);
+    }
+
+    void add(String value) {
+        long hash = hash64(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int index = bitIndex(hash1 + i * hash2);
+            long mask = 1L << index;
+            // skip the write when the bit is already set, which is most of the time once the filter fills up
+            if ((words.get(index >>> 6) & mask) == 0) {
+                words.getAndAccumulate(index >>> 6, mask, (word, bit) -> word | bit);
+            }
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash64(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int index = bitIndex(hash1 + i * hash2);
+            if ((words.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int bitIndex(int combinedHash) {
+        return (combinedHash & Integer.MAX_VALUE) % bitCount;
+    }
+
+    // FNV-1a followed by the MurmurHash3 finalizer, two independent 32-bit halves for double hashing
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53a61cbL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -4,80 +4,140 @@ package com.efrei.usermicroservice.utils;
 import com.efrei.usermicroservice.exceptions.custom.ExpiredJWTException;
 import com.efrei.usermicroservice.exceptions.custom.JWTException;
 import com.efrei.usermicroservice.model.AppUser;
-import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
-import org.bouncycastle.openssl.PEMKeyPair;
+import com.efrei.usermicroservice.utils.AuthMetrics.Outcome;
+import com.efrei.usermicroservice.utils.AuthMetrics.Stage;
 import org.jose4j.jwa.AlgorithmConstraints;
-import org.jose4j.jwk.JsonWebKeySet;
-import org.jose4j.jwk.PublicJsonWebKey;
-import org.jose4j.jwk.RsaJsonWebKey;
-import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jws.JsonWebSignature;
 import org.jose4j.jwt.JwtClaims;
-
-import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
-import org.bouncycastle.openssl.PEMParser;
-import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
-
-import java.io.*;
-import java.security.PublicKey;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
-import java.security.PrivateKey;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.lang.UnresolvableKeyException;
 
 import org.jose4j.jwt.consumer.InvalidJwtException;
 import org.jose4j.jwt.consumer.JwtConsumer;
 import org.jose4j.jwt.consumer.JwtConsumerBuilder;
 import org.jose4j.lang.JoseException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.FileCopyUtils;
+
+import java.security.Key;
+import java.util.List;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 @Service
 public class JWTUtils {
 
-    @Value("classpath:keys/publicKey.pem")
-    private Resource publicKeyFile;
+    public static final String SESSION_ID_CLAIM = "sid";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtKeyRing keyRing;
+
+    private final TokenValidationCache tokenValidationCache;
+
+    private final TokenRevocationList tokenRevocationList;
+
+    private final AuthMetrics authMetrics;
 
-    @Value("classpath:keys/privateKey.pem")
-    private Resource privateKeyFile;
+    private final String issuer;
+
+    private final String audience;
+
+    private final float expirationMinutes;
+
+    // JwtConsumer is immutable and thread safe once built, so a single instance serves every request
+    private final JwtConsumer jwtConsumer;
+
+    public JWTUtils(JwtKeyRing keyRing,
+                    TokenValidationCache tokenValidationCache,
+                    TokenRevocationList tokenRevocationList,
+                    AuthMetrics authMetrics,
+                    @Value("${jwt.issuer}") String issuer,
+                    @Value("${jwt.audience}") String audience,
+                    @Value("${jwt.expiration-minutes}") float expirationMinutes,
+                    @Value("${jwt.allowed-clock-skew-seconds}") int allowedClockSkewSeconds) {
+        this.keyRing = keyRing;
+        this.tokenValidationCache = tokenValidationCache;
+        this.tokenRevocationList = tokenRevocationList;
+        this.authMetrics = authMetrics;
+        this.issuer = issuer;
+        this.audience = audience;
+        this.expirationMinutes = expirationMinutes;
+        this.jwtConsumer = new JwtConsumerBuilder()
+                .setRequireExpirationTime() // the JWT must have an expiration time
+                .setAllowedClockSkewInSeconds(allowedClockSkewSeconds) // allow some leeway in validating time based claims to account for clock skew
+                .setExpectedIssuer(issuer) // whom the JWT needs to have been issued by
+                .setExpectedAudience(audience) // to whom the JWT is intended for
+                .setVerificationKeyResolver(this::resolveVerificationKey) // pick the public key matching the kid header
+                .setJwsAlgorithmConstraints( // only allow the expected signature algorithm(s) in the given context
+                        AlgorithmConstraints.ConstraintType.PERMIT, SigningAlgorithm.identifiers()) // RS256, ES256 and EdDSA, each key is further pinned to its own
+                .build();
+    }
 
     public String createJWT(AppUser user) {
+        return createJWT(user, null);
+    }
 
-        RsaJsonWebKey rsaJsonWebKey = createRsaJsonWebKeyFromPemFiles();
+    /**
+     * Signs an access token bound to the refresh-token family {@code sessionId}, carried in the {@code sid} claim
+     * so that a logout can end the whole session.
+     */
+    public String createJWT(AppUser user, String sessionId) {
+        return authMetrics.time(Stage.TOKEN_SIGN, () -> {
+            JwtClaims claims = getJwtClaims(user, sessionId);
+
+            String result;
+            try {
+                result = keyRing.getSigningKey().sign(claims.toJson());
+            }
+            catch (JoseException e) {
+                throw new JWTException("Erreur lors du parsing du JWT en chaine de caractère");
+            }
+            return result;
+        });
+    }
 
-        JwtClaims claims = getJwtClaims(user);
+    public long getExpiresInSeconds() {
+        return (long) (expirationMinutes * 60);
+    }
 
-        JsonWebSignature jws = new JsonWebSignature();
+    /**
+     * Returns the token of an {@code Authorization: Bearer <jwt>} header, or null when the header is missing or malformed.
+     */
+    public static String extractBearerToken(String authorizationHeader) {
+        if (authorizationHeader == null
+                || !authorizationHeader.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        String jwt = authorizationHeader.substring(BEARER_PREFIX.length()).trim();
+        return jwt.isEmpty() ? null : jwt;
+    }
 
-        jws.setPayload(claims.toJson());
-        jws.setKey(rsaJsonWebKey.getPrivateKey());
-        jws.setKeyIdHeaderValue(rsaJsonWebKey.getKeyId());
-        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
-        String result;
+    public JwtClaims validateJwt(String jwt){
+        long startNanos = authMetrics.start();
+        JwtClaims claims;
         try {
-            result = jws.getCompactSerialization();
+            claims = tokenValidationCache.get(jwt, this::verifyJwt);
+        } catch (ExpiredJWTException e) {
+            authMetrics.record(Stage.TOKEN_VERIFY, Outcome.EXPIRED, startNanos);
+            throw e;
+        } catch (JWTException e) {
+            authMetrics.record(Stage.TOKEN_VERIFY, Outcome.INVALID, startNanos);
+            throw e;
+        } catch (RuntimeException e) {
+            authMetrics.record(Stage.TOKEN_VERIFY, Outcome.ERROR, startNanos);
+            throw e;
         }
-        catch (JoseException e) {
-            throw new JWTException("Erreur lors du parsing du JWT en chaine de caractère");
+        // checked on every call, a cached token can be revoked afterwards
+        if (tokenRevocationList.isRevoked(claims)) {
+            authMetrics.record(Stage.TOKEN_VERIFY, Outcome.REVOKED, startNanos);
+            throw JWTException.REVOKED;
         }
-        return result;
+        authMetrics.record(Stage.TOKEN_VERIFY, Outcome.SUCCESS, startNanos);
+        return claims;
     }
 
-    public JwtClaims validateJwt(String jwt){
-        RsaJsonWebKey rsaJsonWebKey = createRsaJsonWebKeyFromPemFiles();
-
-        JwtConsumer jwtConsumer = new JwtConsumerBuilder()
-                .setRequireExpirationTime() // the JWT must have an expiration time
-                .setAllowedClockSkewInSeconds(30) // allow some leeway in validating time based claims to account for clock skew
-                .setExpectedIssuer("UserMicroservice") // whom the JWT needs to have been issued by
-                .setExpectedAudience("OtherMicroservices") // to whom the JWT is intended for
-                .setVerificationKey(rsaJsonWebKey.getKey()) // verify the signature with the public key
-                .setJwsAlgorithmConstraints( // only allow the expected signature algorithm(s) in the given context
-                        AlgorithmConstraints.ConstraintType.PERMIT, AlgorithmIdentifiers.RSA_USING_SHA256) // which is only RS256 here
-                .build();
+    private JwtClaims verifyJwt(String jwt){
         try
         {
             //  Validate the JWT and process it to the Claims
@@ -87,109 +147,63 @@ public class JWTUtils {
         {
             if (e.hasExpired())
             {
-                throw new ExpiredJWTException("JWT expiré, essayez d'en avoir un nouveau en vous logguant à nouveau");
+                throw ExpiredJWTException.INSTANCE;
             }
-            throw new JWTException("JWT invalide, essayez de vous logguer à nouveau", e);
+            throw JWTException.INVALID;
         }
     }
 
-    public String createJwks() {
-        try {
-            RSAPublicKey publicKey = getRSAPublicKeyFromPEM(publicKeyFile);
-            PublicJsonWebKey publicJwk = PublicJsonWebKey.Factory.newPublicJwk(publicKey);
-            publicJwk.setKeyId("k1");
-            JsonWebKeySet jwks = new JsonWebKeySet(publicJwk);
-            return jwks.toJson();
-        } catch (Exception e) {
-            throw new JWTException("Erreur lors de la création du JWKS", e);
+    /**
+     * Signs and verifies throw-away tokens so that the first logins do not pay for class loading, provider
+     * lookups and interpretation of the crypto code. Neither the validation cache nor the metrics are touched.
+     */
+    public void warmUp(AppUser user, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            try {
+                jwtConsumer.processToClaims(keyRing.getSigningKey().sign(getJwtClaims(user, null).toJson()));
+            } catch (JoseException | InvalidJwtException e) {
+                throw new JWTException("Échec du préchauffage des JWT", e);
+            }
         }
+        createJwks();
+    }
+
+    public String createJwks() {
+        return new String(getJwksDocument().json(), UTF_8);
     }
 
-    private RsaJsonWebKey createRsaJsonWebKeyFromPemFiles() {
-        RsaJsonWebKey rsaJsonWebKey = new RsaJsonWebKey(getRSAPublicKeyFromPEM(publicKeyFile));
-        rsaJsonWebKey.setPrivateKey(getRSAPrivateKeyFromPEM(privateKeyFile));
-        rsaJsonWebKey.setKeyId("k1");
-        return rsaJsonWebKey;
+    public JwksDocument getJwksDocument() {
+        return keyRing.getKeyRing().jwks();
     }
 
-    private JwtClaims getJwtClaims(AppUser user) {
+    private Key resolveVerificationKey(JsonWebSignature jws, List<JsonWebStructure> nestingContext)
+            throws UnresolvableKeyException {
+        SigningKey signingKey = keyRing.getVerificationKey(jws.getKeyIdHeaderValue());
+        if (signingKey == null) {
+            throw new UnresolvableKeyException("Aucune clé connue pour le kid " + jws.getKeyIdHeaderValue());
+        }
+        // a token must use the algorithm of its key, not just any algorithm we support
+        if (!signingKey.getAlgorithm().getIdentifier().equals(jws.getAlgorithmHeaderValue())) {
+            throw new UnresolvableKeyException("Algorithme " + jws.getAlgorithmHeaderValue() + " inattendu pour le kid " + signingKey.getKid());
+        }
+        return signingKey.getPublicKey();
+    }
+
+    private JwtClaims getJwtClaims(AppUser user, String sessionId) {
         JwtClaims claims = new JwtClaims();
-        claims.setIssuer("UserMicroservice");  // who creates the token and signs it
-        claims.setAudience("OtherMicroservices"); // to whom the token is intended to be sent
-        claims.setExpirationTimeMinutesInTheFuture(99999); // time when the token will expire
+        claims.setIssuer(issuer);  // who creates the token and signs it
+        claims.setAudience(audience); // to whom the token is intended to be sent
+        claims.setExpirationTimeMinutesInTheFuture(expirationMinutes); // time when the token will expire
         claims.setGeneratedJwtId(); // a unique identifier for the token
         claims.setIssuedAtToNow();  // when the token was issued/created
         claims.setNotBeforeMinutesInThePast(2); // time before which the token is not yet valid
         claims.setClaim("userId",user.getId()); // additional claims/attributes about the subject can be added
         claims.setClaim("email",user.getEmail()); // additional claims/attributes about the subject can be added
         claims.setClaim("role",user.getUserRole().toString()); // additional claims/attributes about the subject can be added
-        return claims;
-    }
-
-    private RSAPublicKey getRSAPublicKeyFromPEM(Resource pemFile) {
-        String pemContent = asString(pemFile);
-        try (StringReader stringReader = new StringReader(pemContent);
-             PEMParser pemParser = new PEMParser(stringReader)) {
-
-            Object object = pemParser.readObject();
-            JcaPEMKeyConverter converter = new JcaPEMKeyConverter();
-            PublicKey publicKey;
-
-            if (object instanceof SubjectPublicKeyInfo) {
-                // Directly convert SubjectPublicKeyInfo to PublicKey
-                publicKey = converter.getPublicKey((SubjectPublicKeyInfo) object);
-            } else if (object instanceof org.bouncycastle.openssl.PEMKeyPair) {
-                // This case handles public keys that are part of a PEMKeyPair
-                publicKey = converter.getPublicKey(((org.bouncycastle.openssl.PEMKeyPair) object).getPublicKeyInfo());
-            } else {
-                throw new IllegalArgumentException("Unsupported PEM object type: " + object.getClass().getSimpleName());
-            }
-
-            if (!(publicKey instanceof RSAPublicKey)) {
-                throw new IllegalArgumentException("The PEM content does not contain an RSA public key.");
-            }
-
-            return (RSAPublicKey) publicKey;
-        }
-        catch (IOException exception){
-            throw new JWTException("Erreur lors du parsing du fichier de clé publique");
-        }
-    }
-
-    private RSAPrivateKey getRSAPrivateKeyFromPEM(Resource pemFile) {
-        String pemContent = asString(pemFile);
-        try (StringReader stringReader = new StringReader(pemContent);
-             PEMParser pemParser = new PEMParser(stringReader)) {
-
-            Object object = pemParser.readObject();
-            JcaPEMKeyConverter converter = new JcaPEMKeyConverter();
-            PrivateKey privateKey;
-
-            if (object instanceof PEMKeyPair) {
-                privateKey = converter.getPrivateKey(((PEMKeyPair) object).getPrivateKeyInfo());
-            } else if (object instanceof PrivateKeyInfo) {
-                privateKey = converter.getPrivateKey((PrivateKeyInfo) object);
-            } else {
-                throw new IllegalArgumentException("Unsupported PEM object type: " + object.getClass().getSimpleName());
-            }
-
-            if (!(privateKey instanceof RSAPrivateKey)) {
-                throw new IllegalArgumentException("The PEM content does not contain an RSA private key.");
-            }
-
-            return (RSAPrivateKey) privateKey;
-        }
-        catch (IOException exception){
-            throw new JWTException("Erreur lors du parsing du fichier de clé privée");
-        }
-    }
-
-    private String asString(Resource resource) {
-        try (Reader reader = new InputStreamReader(resource.getInputStream(), UTF_8)) {
-            return FileCopyUtils.copyToString(reader);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+        if (sessionId != null) {
+            claims.setClaim(SESSION_ID_CLAIM, sessionId);
         }
+        return claims;
     }
 
 }
@@ -0,0 +1,6 @@
+package com.efrei.usermicroservice.utils;
+
+/**
+ * Serialized JWKS and its strong ETag, computed once per key version.
+ */
+public record JwksDocument(byte[] json, String etag) {}
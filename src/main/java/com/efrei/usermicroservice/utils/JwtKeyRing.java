@@ -0,0 +1,272 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import com.efrei.usermicroservice.utils.AuthMetrics.Stage;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.openssl.PEMKeyPair;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Holds the signing key and every key that may still have signed a live token.
+ * <p>
+ * Keys come from {@code jwt.keys.directory} as {@code <kid>.public.pem}/{@code <kid>.private.pem} pairs,
+ * or from the bundled classpath pair when no directory is configured. RSA, P-256 and Ed25519 keys are accepted,
+ * each one signing with its own algorithm (see {@link SigningAlgorithm}). The greatest kid signs new tokens
+ * once it has been known for {@code jwt.keys.activation-delay-seconds}, which leaves other replicas and
+ * JWKS clients time to pick it up. Keys removed from the directory keep verifying tokens for
+ * {@code jwt.keys.retention-minutes}. Both ends of that overlap window are published in the JWKS.
+ * <p>
+ * A reload builds a complete new ring before swapping it in, so in-flight requests never block
+ * and a broken PEM file never replaces a working key.
+ */
+@Component
+public class JwtKeyRing {
+
+    public record KeyRing(SigningKey signingKey, Map<String, SigningKey> verificationKeys,
+                          JwksDocument jwks, long version, Instant loadedAt) {}
+
+    private record RetiredKey(SigningKey key, Instant retiredAt) {}
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final String PUBLIC_KEY_SUFFIX = ".public.pem";
+
+    private static final String PRIVATE_KEY_SUFFIX = ".private.pem";
+
+    private final AuthMetrics authMetrics;
+
+    private final Resource publicKeyFile;
+
+    private final Resource privateKeyFile;
+
+    private final String defaultKid;
+
+    private final String keyDirectory;
+
+    private final Duration activationDelay;
+
+    private final Duration retention;
+
+    private final AtomicReference<KeyRing> current = new AtomicReference<>();
+
+    // only touched by reload(), under reloadLock
+    private final Map<String, Instant> firstSeen = new HashMap<>();
+
+    private final Map<String, RetiredKey> retiredKeys = new HashMap<>();
+
+    private final Lock reloadLock = new ReentrantLock();
+
+    public JwtKeyRing(AuthMetrics authMetrics,
+                      @Value("classpath:keys/publicKey.pem") Resource publicKeyFile,
+                      @Value("classpath:keys/privateKey.pem") Resource privateKeyFile,
+                      @Value("${jwt.keys.default-kid}") String defaultKid,
+                      @Value("${jwt.keys.directory}") String keyDirectory,
+                      @Value("${jwt.keys.activation-delay-seconds}") long activationDelaySeconds,
+                      @Value("${jwt.keys.retention-minutes}") long retentionMinutes) {
+        this.authMetrics = authMetrics;
+        this.publicKeyFile = publicKeyFile;
+        this.privateKeyFile = privateKeyFile;
+        this.defaultKid = defaultKid;
+        this.keyDirectory = keyDirectory;
+        this.activationDelay = Duration.ofSeconds(activationDelaySeconds);
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        reload();
+    }
+
+    public SigningKey getSigningKey() {
+        return current.get().signingKey();
+    }
+
+    public SigningKey getVerificationKey(String kid) {
+        return kid == null ? null : current.get().verificationKeys().get(kid);
+    }
+
+    public KeyRing getKeyRing() {
+        return current.get();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.keys.reload-interval-ms}", initialDelayString = "${jwt.keys.reload-interval-ms}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            LOGGER.error("Rechargement des clés JWT impossible, les clés actuelles sont conservées", e);
+        }
+    }
+
+    public KeyRing reload() {
+        reloadLock.lock();
+        try {
+            KeyRing previous = current.get();
+            Instant now = Instant.now();
+            Map<String, SigningKey> loadedKeys = authMetrics.time(Stage.KEY_LOAD, this::loadKeys);
+
+            // keys present at startup are trusted right away, keys appearing later wait for the activation delay
+            firstSeen.keySet().retainAll(loadedKeys.keySet());
+            loadedKeys.keySet().forEach(kid -> firstSeen.putIfAbsent(kid, previous == null ? Instant.EPOCH : now));
+
+            if (previous != null) {
+                previous.verificationKeys().forEach((kid, key) -> {
+                    if (!loadedKeys.containsKey(kid)) {
+                        retiredKeys.putIfAbsent(kid, new RetiredKey(key, now));
+                    }
+                });
+            }
+            retiredKeys.keySet().removeAll(loadedKeys.keySet());
+            retiredKeys.values().removeIf(retiredKey -> retiredKey.retiredAt().plus(retention).isBefore(now));
+
+            SigningKey signingKey = selectSigningKey(loadedKeys, previous, now);
+            Map<String, SigningKey> verificationKeys = new LinkedHashMap<>(loadedKeys);
+            retiredKeys.forEach((kid, retiredKey) -> verificationKeys.putIfAbsent(kid, retiredKey.key()));
+            JwksDocument jwks = createJwks(verificationKeys.values());
+
+            if (previous != null
+                    && previous.signingKey().getKid().equals(signingKey.getKid())
+                    && previous.jwks().etag().equals(jwks.etag())) {
+                return previous;
+            }
+
+            // the keys are never mutated once published, readers only ever see a fully built ring
+            KeyRing keyRing = new KeyRing(signingKey, Map.copyOf(verificationKeys), jwks,
+                    previous == null ? 1 : previous.version() + 1, now);
+            current.set(keyRing);
+            return keyRing;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private SigningKey selectSigningKey(Map<String, SigningKey> loadedKeys, KeyRing previous, Instant now) {
+        for (Map.Entry<String, SigningKey> entry : loadedKeys.entrySet()) {
+            if (!firstSeen.get(entry.getKey()).plus(activationDelay).isAfter(now)) {
+                return entry.getValue();
+            }
+        }
+        // nothing is old enough yet: keep signing with the previous key while it is still around
+        if (previous != null && loadedKeys.containsKey(previous.signingKey().getKid())) {
+            return loadedKeys.get(previous.signingKey().getKid());
+        }
+        return loadedKeys.values().iterator().next();
+    }
+
+    private Map<String, SigningKey> loadKeys() {
+        // newest kid first, which is also the order the JWKS lists them in
+        Map<String, SigningKey> keys = new TreeMap<>(Comparator.reverseOrder());
+        if (keyDirectory.isBlank()) {
+            keys.put(defaultKid, createSigningKeyFromPemFiles(defaultKid, publicKeyFile, privateKeyFile));
+            return keys;
+        }
+
+        Path directory = Path.of(keyDirectory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(PRIVATE_KEY_SUFFIX))
+                    .map(name -> name.substring(0, name.length() - PRIVATE_KEY_SUFFIX.length()))
+                    .forEach(kid -> keys.put(kid, createSigningKeyFromPemFiles(kid,
+                            new FileSystemResource(directory.resolve(kid + PUBLIC_KEY_SUFFIX)),
+                            new FileSystemResource(directory.resolve(kid + PRIVATE_KEY_SUFFIX)))));
+        } catch (IOException e) {
+            throw new JWTException("Erreur lors de la lecture du dossier de clés " + keyDirectory, e);
+        }
+        if (keys.isEmpty()) {
+            throw new JWTException("Aucune paire de clés trouvée dans " + keyDirectory);
+        }
+        return keys;
+    }
+
+    private JwksDocument createJwks(Collection<SigningKey> keys) {
+        try {
+            JsonWebKeySet jsonWebKeySet = new JsonWebKeySet();
+            keys.forEach(key -> jsonWebKeySet.addJsonWebKey(key.getPublicJwk()));
+            byte[] json = jsonWebKeySet.toJson().getBytes(UTF_8);
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return new JwksDocument(json, "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"");
+        } catch (Exception e) {
+            throw new JWTException("Erreur lors de la création du JWKS", e);
+        }
+    }
+
+    private SigningKey createSigningKeyFromPemFiles(String kid, Resource publicKeyFile, Resource privateKeyFile) {
+        return new SigningKey(kid, getPublicKeyFromPEM(publicKeyFile), getPrivateKeyFromPEM(privateKeyFile));
+    }
+
+    private PublicKey getPublicKeyFromPEM(Resource pemFile) {
+        String pemContent = asString(pemFile);
+        try (StringReader stringReader = new StringReader(pemContent);
+             PEMParser pemParser = new PEMParser(stringReader)) {
+
+            Object object = pemParser.readObject();
+            JcaPEMKeyConverter converter = new JcaPEMKeyConverter();
+
+            if (object instanceof SubjectPublicKeyInfo) {
+                // Directly convert SubjectPublicKeyInfo to PublicKey
+                return converter.getPublicKey((SubjectPublicKeyInfo) object);
+            } else if (object instanceof PEMKeyPair) {
+                // This case handles public keys that are part of a PEMKeyPair
+                return converter.getPublicKey(((PEMKeyPair) object).getPublicKeyInfo());
+            } else {
+                throw new IllegalArgumentException("Unsupported PEM object type: " + object.getClass().getSimpleName());
+            }
+        }
+        catch (IOException exception){
+            throw new JWTException("Erreur lors du parsing du fichier de clé publique");
+        }
+    }
+
+    private PrivateKey getPrivateKeyFromPEM(Resource pemFile) {
+        String pemContent = asString(pemFile);
+        try (StringReader stringReader = new StringReader(pemContent);
+             PEMParser pemParser = new PEMParser(stringReader)) {
+
+            Object object = pemParser.readObject();
+            JcaPEMKeyConverter converter = new JcaPEMKeyConverter();
+
+            // traditional RSA/EC PEM files come as key pairs, PKCS#8 files (including Ed25519) as PrivateKeyInfo
+            if (object instanceof PEMKeyPair) {
+                return converter.getPrivateKey(((PEMKeyPair) object).getPrivateKeyInfo());
+            } else if (object instanceof PrivateKeyInfo) {
+                return converter.getPrivateKey((PrivateKeyInfo) object);
+            } else {
+                throw new IllegalArgumentException("Unsupported PEM object type: " + object.getClass().getSimpleName());
+            }
+        }
+        catch (IOException exception){
+            throw new JWTException("Erreur lors du parsing du fichier de clé privée");
+        }
+    }
+
+    private String asString(Resource resource) {
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), UTF_8)) {
+            return FileCopyUtils.copyToString(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.exceptions.custom.BadRequestException;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Opaque keyset pagination cursor: the last id of the previous page, base64url-encoded.
+ */
+public final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    public static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(UTF_8));
+    }
+
+    /**
+     * Returns the last id of the previous page, or an empty string, lower than every id, for the first page.
+     */
+    public static String decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return "";
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Curseur de pagination invalide");
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.exceptions.custom.TooManyRequestsException;
+import com.efrei.usermicroservice.exceptions.custom.UserMicroserviceException;
+import com.efrei.usermicroservice.utils.AuthMetrics.Outcome;
+import com.efrei.usermicroservice.utils.AuthMetrics.Stage;
+import jakarta.annotation.PreDestroy;
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.generators.OpenBSDBCrypt;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Hashes and verifies passwords on a dedicated pool sized to the CPU count.
+ * <p>
+ * Hashes are self-describing: Argon2id uses the PHC string format ({@code $argon2id$v=19$m=..,t=..,p=..$salt$hash})
+ * and bcrypt its usual {@code $2y$cost$...} form, so the work factor can change per deployment while old hashes
+ * keep verifying. Legacy unsalted SHA-256 hex hashes are still accepted for verification, at the cost of a
+ * current hash so that their timing does not give them away.
+ * <p>
+ * The queue in front of the pool is bounded: once it is full, callers get a {@link TooManyRequestsException}
+ * right away instead of piling up threads that all compete for the same cores.
+ * The pool stays on platform threads when request handling runs on virtual threads: hashing is CPU-bound,
+ * and a virtual caller waiting for its result simply unmounts.
+ */
+@Service
+public class PasswordHashingEngine {
+
+    private static final String ARGON2ID = "argon2id";
+
+    private static final String BCRYPT = "bcrypt";
+
+    private static final String ARGON2ID_PREFIX = "$argon2id$";
+
+    private static final int SALT_LENGTH = 16;
+
+    private static final int ARGON2_HASH_LENGTH = 32;
+
+    private static final int LEGACY_SHA256_HEX_LENGTH = 64;
+
+    private final String algorithm;
+
+    private final int argon2MemoryKib;
+
+    private final int argon2Iterations;
+
+    private final int argon2Parallelism;
+
+    private final int bcryptCost;
+
+    private final TooManyRequestsException saturated;
+
+    AuthMetrics authMetrics;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final ThreadPoolExecutor executor;
+
+    private final String dummyHash;
+
+    public PasswordHashingEngine(AuthMetrics authMetrics,
+                                 @Value("${password.hashing.algorithm}") String algorithm,
+                                 @Value("${password.hashing.argon2.memory-kib}") int argon2MemoryKib,
+                                 @Value("${password.hashing.argon2.iterations}") int argon2Iterations,
+                                 @Value("${password.hashing.argon2.parallelism}") int argon2Parallelism,
+                                 @Value("${password.hashing.bcrypt.cost}") int bcryptCost,
+                                 @Value("${password.hashing.threads}") int threads,
+                                 @Value("${password.hashing.queue-capacity}") int queueCapacity,
+                                 @Value("${password.hashing.retry-after-seconds}") long retryAfterSeconds) {
+        if (!ARGON2ID.equals(algorithm) && !BCRYPT.equals(algorithm)) {
+            throw new IllegalArgumentException("Unsupported password hashing algorithm: " + algorithm);
+        }
+        this.authMetrics = authMetrics;
+        this.algorithm = algorithm;
+        this.argon2MemoryKib = argon2MemoryKib;
+        this.argon2Iterations = argon2Iterations;
+        this.argon2Parallelism = argon2Parallelism;
+        this.bcryptCost = bcryptCost;
+        this.saturated = new TooManyRequestsException("Trop de requêtes en cours, réessayez dans quelques instants", retryAfterSeconds);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        // computed once up front so that the first unknown email does not pay for two hashes
+        this.dummyHash = computeHash(UUID.randomUUID().toString());
+    }
+
+    public String hash(String password) {
+        return submit(() -> hashNow(password));
+    }
+
+    public boolean verify(String password, String storedHash) {
+        return submit(() -> verifyNow(password, storedHash));
+    }
+
+    /**
+     * Non-blocking variants for callers that must not wait on a thread, the pool completes the future.
+     */
+    public CompletableFuture<String> hashAsync(String password) {
+        return submitAsync(() -> hashNow(password));
+    }
+
+    public CompletableFuture<Boolean> verifyAsync(String password, String storedHash) {
+        return submitAsync(() -> verifyNow(password, storedHash));
+    }
+
+    /**
+     * Hashes a batch of passwords in parallel, keeping at most one task per worker in flight
+     * so that the queue stays available for interactive logins.
+     */
+    public List<String> hashAll(List<String> passwords) {
+        String[] hashes = new String[passwords.size()];
+        Deque<Map.Entry<Integer, Future<String>>> inFlight = new ArrayDeque<>();
+        for (int i = 0; i < passwords.size(); i++) {
+            String password = passwords.get(i);
+            Future<String> future = null;
+            while (future == null) {
+                if (inFlight.size() >= executor.getMaximumPoolSize()) {
+                    awaitHash(inFlight.poll(), hashes);
+                }
+                try {
+                    future = executor.submit(() -> hashNow(password));
+                } catch (RejectedExecutionException e) {
+                    if (inFlight.isEmpty()) {
+                        throw saturated;
+                    }
+                    // the pool is busy with logins, wait for one of ours before trying again
+                    awaitHash(inFlight.poll(), hashes);
+                }
+            }
+            inFlight.add(Map.entry(i, future));
+        }
+        while (!inFlight.isEmpty()) {
+            awaitHash(inFlight.poll(), hashes);
+        }
+        return Arrays.asList(hashes);
+    }
+
+    /**
+     * Verifies the password against a hash of a random secret made with the current parameters, for logins whose
+     * email is unknown: they then cost as much as a wrong password and cannot be told apart by their timing.
+     */
+    public void verifyDummy(String password) {
+        submit(() -> verifyNow(password, dummyHash));
+    }
+
+    public CompletableFuture<Boolean> verifyDummyAsync(String password) {
+        return submitAsync(() -> verifyNow(password, dummyHash));
+    }
+
+    /**
+     * Runs one hash and one verification on the calling thread, outside the pool and the metrics.
+     */
+    public void warmUp() {
+        matches("warm-up", dummyHash);
+    }
+
+    /**
+     * Tells whether a stored hash was produced by a legacy scheme or with other parameters than the current ones.
+     * This only parses the hash, so it is cheap enough to call on every login.
+     */
+    public boolean needsRehash(String storedHash) {
+        if (isLegacy(storedHash)) {
+            return true;
+        }
+        if (BCRYPT.equals(algorithm)) {
+            return !storedHash.startsWith("$2y$" + String.format("%02d", bcryptCost) + "$");
+        }
+        return !storedHash.startsWith(ARGON2ID_PREFIX + "v=" + Argon2Parameters.ARGON2_VERSION_13
+                + "$m=" + argon2MemoryKib + ",t=" + argon2Iterations + ",p=" + argon2Parallelism + "$");
+    }
+
+    public boolean isLegacy(String storedHash) {
+        return storedHash == null || !storedHash.startsWith("$");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw saturated;
+        }
+        return await(future);
+    }
+
+    private <T> CompletableFuture<T> submitAsync(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            throw saturated;
+        }
+    }
+
+    private void awaitHash(Map.Entry<Integer, Future<String>> pendingHash, String[] hashes) {
+        hashes[pendingHash.getKey()] = await(pendingHash.getValue());
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new UserMicroserviceException("Hash du mot de passe interrompu", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new UserMicroserviceException("Erreur lors du hash du mot de passe", e);
+        }
+    }
+
+    // timed inside the pool, queueing is left out of the stage
+    private String hashNow(String password) {
+        return authMetrics.time(Stage.PASSWORD_HASH, () -> computeHash(password));
+    }
+
+    private boolean verifyNow(String password, String storedHash) {
+        long startNanos = authMetrics.start();
+        try {
+            boolean correct = matches(password, storedHash);
+            authMetrics.record(Stage.PASSWORD_VERIFY, correct ? Outcome.SUCCESS : Outcome.WRONG_PASSWORD, startNanos);
+            return correct;
+        } catch (RuntimeException e) {
+            authMetrics.record(Stage.PASSWORD_VERIFY, Outcome.ERROR, startNanos);
+            throw e;
+        }
+    }
+
+    private String computeHash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        secureRandom.nextBytes(salt);
+        if (BCRYPT.equals(algorithm)) {
+            return OpenBSDBCrypt.generate("2y", password.toCharArray(), salt, bcryptCost);
+        }
+        byte[] hash = argon2(password, salt, argon2MemoryKib, argon2Iterations, argon2Parallelism, ARGON2_HASH_LENGTH);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return ARGON2ID_PREFIX + "v=" + Argon2Parameters.ARGON2_VERSION_13
+                + "$m=" + argon2MemoryKib + ",t=" + argon2Iterations + ",p=" + argon2Parallelism
+                + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    private boolean matches(String password, String storedHash) {
+        if (storedHash != null && storedHash.startsWith(ARGON2ID_PREFIX)) {
+            return verifyArgon2id(password, storedHash);
+        }
+        if (storedHash != null && storedHash.startsWith("$2")) {
+            return OpenBSDBCrypt.checkPassword(storedHash, password.toCharArray());
+        }
+        // a SHA-256 takes microseconds: without paying for a real hash as well,
+        // the timing of a login would single out the accounts not migrated yet
+        matches(password, dummyHash);
+        if (storedHash != null && storedHash.length() == LEGACY_SHA256_HEX_LENGTH) {
+            return MessageDigest.isEqual(legacySha256(password).getBytes(UTF_8), storedHash.getBytes(UTF_8));
+        }
+        return false;
+    }
+
+    private boolean verifyArgon2id(String password, String storedHash) {
+        // "", "argon2id", "v=19", "m=..,t=..,p=..", salt, hash
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 6) {
+            return false;
+        }
+        try {
+            int memoryKib = 0;
+            int iterations = 0;
+            int parallelism = 0;
+            for (String parameter : parts[3].split(",")) {
+                String[] keyValue = parameter.split("=", 2);
+                int value = Integer.parseInt(keyValue[1]);
+                switch (keyValue[0]) {
+                    case "m" -> memoryKib = value;
+                    case "t" -> iterations = value;
+                    case "p" -> parallelism = value;
+                    default -> { return false; }
+                }
+            }
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] salt = decoder.decode(parts[4]);
+            byte[] expected = decoder.decode(parts[5]);
+            byte[] actual = argon2(password, salt, memoryKib, iterations, parallelism, expected.length);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // a corrupted hash never matches
+            return false;
+        }
+    }
+
+    private byte[] argon2(String password, byte[] salt, int memoryKib, int iterations, int parallelism, int length) {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+                .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+                .withMemoryAsKB(memoryKib)
+                .withIterations(iterations)
+                .withParallelism(parallelism)
+                .withSalt(salt)
+                .build();
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init(parameters);
+        byte[] hash = new byte[length];
+        generator.generateBytes(password.getBytes(UTF_8), hash);
+        return hash;
+    }
+
+    private String legacySha256(String input) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(input.getBytes()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new UserMicroserviceException("Erreur lors du hash d'une chaine de caractère", e);
+        }
+    }
+}
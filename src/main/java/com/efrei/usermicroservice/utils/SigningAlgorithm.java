@@ -0,0 +1,60 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.keys.EllipticCurves;
+
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+/**
+ * JWS algorithms a key of the ring may use. The algorithm follows from the key type,
+ * so dropping an EC or Ed25519 pair in the key directory is enough to switch.
+ */
+public enum SigningAlgorithm {
+    RS256(AlgorithmIdentifiers.RSA_USING_SHA256),
+    ES256(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256),
+    EDDSA(AlgorithmIdentifiers.EDDSA);
+
+    private static final int MIN_RSA_KEY_SIZE = 2048;
+
+    private final String identifier;
+
+    SigningAlgorithm(String identifier) {
+        this.identifier = identifier;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public static String[] identifiers() {
+        return Arrays.stream(values()).map(SigningAlgorithm::getIdentifier).toArray(String[]::new);
+    }
+
+    public static SigningAlgorithm forPublicKey(PublicKey publicKey) {
+        if (publicKey instanceof RSAPublicKey rsaPublicKey) {
+            if (rsaPublicKey.getModulus().bitLength() < MIN_RSA_KEY_SIZE) {
+                // jose4j would refuse such a key on every signature, fail once at load time instead
+                throw new JWTException("La clé RSA doit faire au moins " + MIN_RSA_KEY_SIZE + " bits");
+            }
+            return RS256;
+        }
+        if (publicKey instanceof ECPublicKey ecPublicKey) {
+            if (!EllipticCurves.P_256.equals(EllipticCurves.getName(ecPublicKey.getParams().getCurve()))) {
+                throw new JWTException("Seule la courbe P-256 est supportée pour les clés EC");
+            }
+            return ES256;
+        }
+        if (publicKey instanceof EdECPublicKey edECPublicKey) {
+            if (!"Ed25519".equals(edECPublicKey.getParams().getName())) {
+                throw new JWTException("Seule la courbe Ed25519 est supportée pour EdDSA");
+            }
+            return EDDSA;
+        }
+        throw new JWTException("Type de clé non supporté : " + publicKey.getAlgorithm());
+    }
+}
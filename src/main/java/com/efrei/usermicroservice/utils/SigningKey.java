@@ -0,0 +1,69 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.jose4j.jwk.Use;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.lang.JoseException;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * One key pair of the ring: signs with its private key and verifies with its public key,
+ * always using the algorithm that matches the key type.
+ */
+public final class SigningKey {
+
+    private final String kid;
+
+    private final SigningAlgorithm algorithm;
+
+    private final PublicKey publicKey;
+
+    private final PrivateKey privateKey;
+
+    private final PublicJsonWebKey publicJwk;
+
+    public SigningKey(String kid, PublicKey publicKey, PrivateKey privateKey) {
+        this.kid = kid;
+        this.algorithm = SigningAlgorithm.forPublicKey(publicKey);
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+        try {
+            this.publicJwk = PublicJsonWebKey.Factory.newPublicJwk(publicKey);
+        } catch (JoseException e) {
+            throw new JWTException("Erreur lors de la conversion de la clé publique " + kid + " en JWK", e);
+        }
+        publicJwk.setKeyId(kid);
+        publicJwk.setAlgorithm(algorithm.getIdentifier());
+        publicJwk.setUse(Use.SIGNATURE);
+    }
+
+    public String sign(String payload) throws JoseException {
+        // JsonWebSignature is stateful and cannot be shared, but it only wraps the cached key
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload(payload);
+        jws.setKey(privateKey);
+        jws.setKeyIdHeaderValue(kid);
+        jws.setAlgorithmHeaderValue(algorithm.getIdentifier());
+        jws.setDoKeyValidation(false); // the key is checked once when it is loaded
+        return jws.getCompactSerialization();
+    }
+
+    public String getKid() {
+        return kid;
+    }
+
+    public SigningAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public PublicJsonWebKey getPublicJwk() {
+        return publicJwk;
+    }
+}
@@ -0,0 +1,42 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.utils.AuthMetrics.Outcome;
+import com.efrei.usermicroservice.utils.AuthMetrics.Stage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Replaces the JSON converter Spring Boot would register, to time the serialization of response bodies
+ * as the {@code serialization} stage of {@link AuthMetrics}.
+ */
+@Component
+@Profile("!reactive")
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    AuthMetrics authMetrics;
+
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, AuthMetrics authMetrics) {
+        super(objectMapper);
+        this.authMetrics = authMetrics;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        long startNanos = authMetrics.start();
+        try {
+            super.writeInternal(object, type, outputMessage);
+            authMetrics.record(Stage.SERIALIZATION, Outcome.SUCCESS, startNanos);
+        } catch (IOException | RuntimeException e) {
+            authMetrics.record(Stage.SERIALIZATION, Outcome.ERROR, startNanos);
+            throw e;
+        }
+    }
+}
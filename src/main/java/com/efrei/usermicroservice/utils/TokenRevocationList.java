@@ -0,0 +1,113 @@
+package com.efrei.usermicroservice.utils;
+
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.NumericDate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory mirror of the revoked tokens: single tokens by {@code jti}, and every token of a user
+ * issued before a cutoff. A Bloom filter sits in front of both maps, so the usual case, a token
+ * that was never revoked, costs a couple of hashes and no map lookup.
+ * <p>
+ * The entries are kept until the tokens they cover have expired; {@link #purgeExpired} drops them
+ * and rebuilds the filter, which cannot forget entries on its own.
+ */
+@Component
+public class TokenRevocationList {
+
+    private record Revocation(long value, Instant expiresAt) {}
+
+    private static final String JTI_PREFIX = "jti:";
+
+    private static final String USER_PREFIX = "user:";
+
+    private final Map<String, Revocation> revokedJtis = new ConcurrentHashMap<>();
+
+    // value is the cutoff: tokens of this user with iat < cutoff (epoch seconds) are revoked
+    private final Map<String, Revocation> userCutoffs = new ConcurrentHashMap<>();
+
+    private final int expectedInsertions;
+
+    private final double falsePositiveRate;
+
+    // revocations are rare, they are serialized with the rebuilds while reads stay lock-free
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile BloomFilter filter;
+
+    public TokenRevocationList(@Value("${jwt.revocation.bloom.expected-insertions}") int expectedInsertions,
+                               @Value("${jwt.revocation.bloom.false-positive-rate}") double falsePositiveRate) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    public boolean isRevoked(JwtClaims claims) {
+        try {
+            BloomFilter currentFilter = filter;
+            String jti = claims.getJwtId();
+            if (jti != null && currentFilter.mightContain(JTI_PREFIX + jti) && revokedJtis.containsKey(jti)) {
+                return true;
+            }
+            String userId = claims.getStringClaimValue("userId");
+            if (userId != null && currentFilter.mightContain(USER_PREFIX + userId)) {
+                Revocation cutoff = userCutoffs.get(userId);
+                NumericDate issuedAt = claims.getIssuedAt();
+                return cutoff != null && (issuedAt == null || issuedAt.getValue() < cutoff.value());
+            }
+            return false;
+        } catch (MalformedClaimException e) {
+            // our own tokens always have well-formed claims, anything else is not trusted
+            return true;
+        }
+    }
+
+    public void revokeJti(String jti, Instant expiresAt) {
+        writeLock.lock();
+        try {
+            revokedJtis.put(jti, new Revocation(0, expiresAt));
+            filter.add(JTI_PREFIX + jti);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void revokeUserTokens(String userId, long issuedBeforeEpochSecond, Instant expiresAt) {
+        writeLock.lock();
+        try {
+            // a later cutoff always covers an earlier one
+            userCutoffs.merge(userId, new Revocation(issuedBeforeEpochSecond, expiresAt),
+                    (current, added) -> added.value() >= current.value() ? added : current);
+            filter.add(USER_PREFIX + userId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void purgeExpired(Instant now) {
+        writeLock.lock();
+        try {
+            revokedJtis.values().removeIf(revocation -> revocation.expiresAt().isBefore(now));
+            userCutoffs.values().removeIf(revocation -> revocation.expiresAt().isBefore(now));
+
+            // fully built before it is published, readers never see a filter missing a revoked entry
+            BloomFilter rebuiltFilter = new BloomFilter(Math.max(expectedInsertions, 2 * size()), falsePositiveRate);
+            revokedJtis.keySet().forEach(jti -> rebuiltFilter.add(JTI_PREFIX + jti));
+            userCutoffs.keySet().forEach(userId -> rebuiltFilter.add(USER_PREFIX + userId));
+            filter = rebuiltFilter;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return revokedJtis.size() + userCutoffs.size();
+    }
+}
@@ -0,0 +1,98 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.exceptions.custom.ExpiredJWTException;
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import com.efrei.usermicroservice.exceptions.custom.UserMicroserviceException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Remembers the outcome of token verifications, keyed by the SHA-256 of the compact token.
+ * Valid tokens stay cached until their {@code exp}, rejected tokens only for a short negative TTL.
+ * Hit, miss and eviction counters are published as the {@code jwt.validation} cache metrics.
+ * Cached claims are shared between requests and must not be modified by callers.
+ */
+@Component
+public class TokenValidationCache {
+
+    private record Entry(JwtClaims claims, RuntimeException failure, long expiresAtMillis) {}
+
+    private final Cache<String, Entry> cache;
+
+    public TokenValidationCache(@Value("${jwt.cache.maximum-size}") long maximumSize,
+                                @Value("${jwt.cache.negative-ttl-seconds}") long negativeTtlSeconds,
+                                MeterRegistry meterRegistry) {
+        long negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        if (entry.failure() != null) {
+                            return negativeTtlNanos;
+                        }
+                        long remainingMillis = entry.expiresAtMillis() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.validation");
+    }
+
+    /**
+     * Returns the cached claims for this token, or runs the verifier once and caches its outcome.
+     * The verifier is expected to throw {@link ExpiredJWTException} or {@link JWTException} for rejected tokens.
+     */
+    public JwtClaims get(String jwt, Function<String, JwtClaims> verifier) {
+        Entry entry = cache.get(digest(jwt), key -> verify(jwt, verifier));
+        if (entry.failure() != null) {
+            throw entry.failure();
+        }
+        return entry.claims();
+    }
+
+    private Entry verify(String jwt, Function<String, JwtClaims> verifier) {
+        try {
+            JwtClaims claims = verifier.apply(jwt);
+            return new Entry(claims, null, claims.getExpirationTime().getValueInMillis());
+        } catch (JWTException e) {
+            return new Entry(null, e, 0);
+        } catch (MalformedClaimException e) {
+            return new Entry(null, JWTException.INVALID, 0);
+        }
+    }
+
+    private String digest(String jwt) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new UserMicroserviceException("Erreur lors du hash d'une chaine de caractère", e);
+        }
+    }
+}
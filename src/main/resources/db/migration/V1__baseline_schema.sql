@@ -0,0 +1,45 @@
+-- Schema previously created by spring.jpa.hibernate.ddl-auto=update. Every statement is idempotent so that
+-- a database created that way is brought under migration control by running this script once
+-- (spring.flyway.baseline-on-migrate with baseline version 0).
+
+CREATE TABLE IF NOT EXISTS app_user (
+    id            VARCHAR(255) NOT NULL PRIMARY KEY,
+    email         VARCHAR(255),
+    password_hash VARCHAR(255),
+    user_role     SMALLINT CHECK (user_role BETWEEN 0 AND 1),
+    -- also the index behind the login lookup and the conflict target of inserts
+    CONSTRAINT app_user_email_key UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS revoked_token (
+    jti        VARCHAR(255) NOT NULL PRIMARY KEY,
+    expires_at TIMESTAMP(6) WITH TIME ZONE
+);
+CREATE INDEX IF NOT EXISTS revoked_token_expires_at_idx ON revoked_token (expires_at);
+
+CREATE TABLE IF NOT EXISTS user_token_cutoff (
+    user_id       VARCHAR(255) NOT NULL PRIMARY KEY,
+    issued_before TIMESTAMP(6) WITH TIME ZONE,
+    expires_at    TIMESTAMP(6) WITH TIME ZONE
+);
+CREATE INDEX IF NOT EXISTS user_token_cutoff_expires_at_idx ON user_token_cutoff (expires_at);
+
+CREATE TABLE IF NOT EXISTS refresh_token (
+    token_hash VARCHAR(255) NOT NULL PRIMARY KEY,
+    family_id  VARCHAR(255),
+    user_id    VARCHAR(255),
+    expires_at TIMESTAMP(6) WITH TIME ZONE,
+    used       BOOLEAN NOT NULL
+);
+-- same indexes as the ones Hibernate generated, under readable names
+DROP INDEX IF EXISTS idx4cw25d61xkp4ksjo52oxwn1mu;
+DROP INDEX IF EXISTS idxf95ixxe7pa48ryn1awmh2evt7;
+CREATE INDEX IF NOT EXISTS refresh_token_family_id_idx ON refresh_token (family_id);
+CREATE INDEX IF NOT EXISTS refresh_token_user_id_idx ON refresh_token (user_id);
+CREATE INDEX IF NOT EXISTS refresh_token_expires_at_idx ON refresh_token (expires_at);
+
+CREATE TABLE IF NOT EXISTS login_rate_limit (
+    bucket_key VARCHAR(255) NOT NULL PRIMARY KEY,
+    tat        BIGINT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS login_rate_limit_tat_idx ON login_rate_limit (tat);
@@ -0,0 +1,212 @@
+package com.efrei.usermicroservice;
+
+import com.efrei.usermicroservice.repository.UserTokenCutoffRepository;
+import com.efrei.usermicroservice.service.TokenRevocationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Login, refresh and logout through the whole application against an embedded Postgres,
+ * which stops on its own shutdown hook once the cached context is closed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AuthenticationIntegrationTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    UserTokenCutoffRepository userTokenCutoffRepository;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @Test
+    void loginReturnsTokensThatAuthenticate() throws Exception {
+        String email = newEmail();
+        String userId = createUser(email);
+
+        JsonNode login = json(login(email, "s3cret").andExpect(status().isOk()));
+
+        assertEquals(900, login.get("expiresIn").asLong());
+        getUser(userId, login.get("token").asText())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(email))
+                .andExpect(jsonPath("$.userRole").value("CUSTOMER"));
+    }
+
+    @Test
+    void wrongPasswordAndUnknownEmailGetTheSameAnswer() throws Exception {
+        String email = newEmail();
+        createUser(email);
+
+        String wrongPassword = body(login(email, "wrong").andExpect(status().isUnauthorized()));
+        String unknownEmail = body(login(newEmail(), "s3cret").andExpect(status().isUnauthorized()));
+
+        assertEquals(wrongPassword, unknownEmail);
+    }
+
+    @Test
+    void refreshRotatesAndAReplayRevokesTheSession() throws Exception {
+        String email = newEmail();
+        String userId = createUser(email);
+        String firstRefreshToken = json(login(email, "s3cret").andExpect(status().isOk())).get("refreshToken").asText();
+
+        String secondRefreshToken = json(refresh(firstRefreshToken).andExpect(status().isOk())).get("refreshToken").asText();
+        JsonNode latest = json(refresh(secondRefreshToken).andExpect(status().isOk()));
+        String latestAccessToken = latest.get("token").asText();
+        assertNotEquals(firstRefreshToken, secondRefreshToken);
+        getUser(userId, latestAccessToken).andExpect(status().isOk());
+
+        // the first token was consumed two rotations ago: it leaked, the whole session goes
+        refresh(firstRefreshToken)
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.code").value("invalid-refresh-token"));
+        refresh(latest.get("refreshToken").asText()).andExpect(status().isUnauthorized());
+        getUser(userId, latestAccessToken).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void refreshIgnoresAnInvalidAccessTokenInTheHeader() throws Exception {
+        String email = newEmail();
+        createUser(email);
+        String refreshToken = json(login(email, "s3cret").andExpect(status().isOk())).get("refreshToken").asText();
+
+        mockMvc.perform(post("/token/refresh")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer expired-or-forged")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("refreshToken", refreshToken))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void logoutRevokesTheAccessToken() throws Exception {
+        String email = newEmail();
+        String userId = createUser(email);
+        String accessToken = json(login(email, "s3cret").andExpect(status().isOk())).get("token").asText();
+
+        mockMvc.perform(post("/logout").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andExpect(status().isOk());
+
+        getUser(userId, accessToken)
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string(HttpHeaders.WWW_AUTHENTICATE, "Bearer"));
+        mockMvc.perform(post("/logout")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void logoutEndsTheRefreshSession() throws Exception {
+        String email = newEmail();
+        createUser(email);
+        String firstRefreshToken = json(login(email, "s3cret").andExpect(status().isOk())).get("refreshToken").asText();
+        // the rotated access token still belongs to the session opened at login
+        JsonNode rotated = json(refresh(firstRefreshToken).andExpect(status().isOk()));
+
+        mockMvc.perform(post("/logout").header(HttpHeaders.AUTHORIZATION, "Bearer " + rotated.get("token").asText()))
+                .andExpect(status().isOk());
+
+        refresh(rotated.get("refreshToken").asText()).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void userCreationIsOpenToAnonymousCallersButChecksAuthenticatedOnes() throws Exception {
+        String email = newEmail();
+        createUser(email);
+        String accessToken = json(login(email, "s3cret").andExpect(status().isOk())).get("token").asText();
+        String agentRequest = objectMapper.writeValueAsString(Map.of("role", "AGENT", "email", newEmail(), "password", "s3cret"));
+
+        // anonymous self-registration is downgraded to a customer, a customer asking for an agent is refused
+        mockMvc.perform(post("/user").contentType(MediaType.APPLICATION_JSON).content(agentRequest))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userRole").value("CUSTOMER"));
+        mockMvc.perform(post("/user")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("role", "AGENT", "email", newEmail(), "password", "s3cret"))))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void userCutoffNeverMovesBackwards() {
+        String userId = UUID.randomUUID().toString();
+        Instant later = Instant.ofEpochSecond(Instant.now().getEpochSecond() + 60);
+
+        tokenRevocationService.revokeAllTokens(userId, later);
+        // an earlier revocation committing last must not reopen the tokens of the later one
+        tokenRevocationService.revokeAllTokens(userId, later.minusSeconds(30));
+
+        assertEquals(later, userTokenCutoffRepository.findById(userId).orElseThrow().getIssuedBefore());
+    }
+
+    private String createUser(String email) throws Exception {
+        return json(mockMvc.perform(post("/user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("role", "CUSTOMER", "email", email, "password", "s3cret"))))
+                .andExpect(status().isOk()))
+                .get("id").asText();
+    }
+
+    private ResultActions login(String email, String password) throws Exception {
+        return mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("email", email, "password", password))));
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception {
+        return mockMvc.perform(post("/token/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("refreshToken", refreshToken))));
+    }
+
+    private ResultActions getUser(String userId, String accessToken) throws Exception {
+        return mockMvc.perform(get("/user/" + userId).header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken));
+    }
+
+    private static String body(ResultActions resultActions) throws Exception {
+        return resultActions.andReturn().getResponse().getContentAsString();
+    }
+
+    private JsonNode json(ResultActions resultActions) throws Exception {
+        return objectMapper.readTree(body(resultActions));
+    }
+
+    private static String newEmail() {
+        return "it-" + UUID.randomUUID() + "@example.com";
+    }
+}
@@ -0,0 +1,59 @@
+package com.efrei.usermicroservice.exceptions;
+
+import com.efrei.usermicroservice.exceptions.custom.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    private final ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest());
+
+    @Test
+    void tooManyRequestsCarriesItsRetryAfter() throws Exception {
+        TooManyRequestsException exception = new TooManyRequestsException("Trop de tentatives de connexion (email), réessayez plus tard", 7);
+
+        ResponseEntity<Object> response = handler.handleTooManyRequests(exception, request);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON, response.getHeaders().getContentType());
+        JsonNode body = body(response);
+        assertEquals("too-many-requests", body.get("code").asText());
+        assertEquals(429, body.get("status").asInt());
+        assertFalse(body.get("detail").asText().contains("7"), "the wait is only in the header");
+    }
+
+    @Test
+    void tokenErrorsChallengeForABearerToken() throws Exception {
+        ResponseEntity<Object> response = handler.handleUserMicroserviceException(ExpiredJWTException.INSTANCE, request);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        assertEquals("Bearer", response.getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE));
+        assertEquals("expired-token", body(response).get("code").asText());
+    }
+
+    @Test
+    void otherErrorsAnswerTheirStatusAndCode() throws Exception {
+        ResponseEntity<Object> response = handler.handleUserMicroserviceException(IncorrectPasswordException.INSTANCE, request);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE));
+        assertNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("invalid-credentials", body(response).get("code").asText());
+    }
+
+    private static JsonNode body(ResponseEntity<Object> response) throws Exception {
+        return new ObjectMapper().readTree((byte[]) response.getBody());
+    }
+}
@@ -0,0 +1,120 @@
+package com.efrei.usermicroservice.repository;
+
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserCacheTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private final CacheInvalidationBus cacheInvalidationBus = mock(CacheInvalidationBus.class);
+
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(userRepository, cacheInvalidationBus, new SimpleMeterRegistry(), 100, 60);
+    }
+
+    @Test
+    void lookupsAreServedFromTheCacheOnceLoaded() {
+        AppUser appUser = user("u1", "a@example.com");
+        when(userRepository.findById("u1")).thenReturn(Optional.of(appUser));
+
+        assertSame(appUser, userCache.findById("u1").orElseThrow());
+        assertSame(appUser, userCache.findById("u1").orElseThrow());
+        assertSame(appUser, userCache.findByEmail("a@example.com").orElseThrow());
+
+        verify(userRepository, times(1)).findById("u1");
+        verify(userRepository, never()).findByEmail(any());
+    }
+
+    @Test
+    void invalidationDuringALoadByIdDropsTheLoadedRow() {
+        AppUser staleUser = user("u1", "a@example.com");
+        AppUser updatedUser = user("u1", "b@example.com");
+        // the update commits and invalidates while the stale row is on its way back
+        when(userRepository.findById("u1")).thenAnswer(invocation -> {
+            userCache.invalidate("u1", "a@example.com");
+            return Optional.of(staleUser);
+        }).thenReturn(Optional.of(updatedUser));
+
+        assertSame(staleUser, userCache.findById("u1").orElseThrow());
+
+        assertSame(updatedUser, userCache.findById("u1").orElseThrow());
+        verify(userRepository, times(2)).findById("u1");
+    }
+
+    @Test
+    void invalidationDuringALoadByEmailDropsTheLoadedRow() {
+        AppUser staleUser = user("u1", "a@example.com");
+        when(userRepository.findByEmail("a@example.com")).thenAnswer(invocation -> {
+            userCache.invalidate("u1", "a@example.com");
+            return Optional.of(staleUser);
+        }).thenReturn(Optional.empty());
+
+        userCache.findByEmail("a@example.com");
+
+        assertTrue(userCache.findByEmail("a@example.com").isEmpty());
+        when(userRepository.findById("u1")).thenReturn(Optional.empty());
+        assertTrue(userCache.findById("u1").isEmpty());
+    }
+
+    @Test
+    void invalidationDuringABatchLoadDropsTheLoadedRows() {
+        when(userRepository.findAllById(List.of("u1"))).thenAnswer(invocation -> {
+            userCache.invalidate("u1", null);
+            return List.of(user("u1", "a@example.com"));
+        });
+        userCache.findAllById(List.of("u1"));
+
+        when(userRepository.findById("u1")).thenReturn(Optional.empty());
+        assertTrue(userCache.findById("u1").isEmpty());
+    }
+
+    @Test
+    void emailChangeEvictsTheOldEmail() {
+        AppUser appUser = user("u1", "old@example.com");
+        when(userRepository.findByEmail("old@example.com")).thenReturn(Optional.of(appUser));
+        userCache.findByEmail("old@example.com");
+
+        AppUser renamedUser = user("u1", "new@example.com");
+        userCache.invalidate("u1", "old@example.com");
+        userCache.put(renamedUser);
+        when(userRepository.findByEmail("old@example.com")).thenReturn(Optional.empty());
+
+        assertTrue(userCache.findByEmail("old@example.com").isEmpty());
+        assertSame(renamedUser, userCache.findByEmail("new@example.com").orElseThrow());
+        verify(cacheInvalidationBus).publish("user", "u1|old@example.com");
+    }
+
+    @Test
+    void loadsAfterAnInvalidationAreCachedAgain() {
+        userCache.invalidate("u1", null);
+        AppUser appUser = user("u1", "a@example.com");
+        when(userRepository.findById("u1")).thenReturn(Optional.of(appUser));
+
+        userCache.findById("u1");
+        userCache.findById("u1");
+
+        verify(userRepository, times(1)).findById("u1");
+    }
+
+    private static AppUser user(String id, String email) {
+        AppUser appUser = new AppUser();
+        appUser.setId(id);
+        appUser.setEmail(email);
+        appUser.setUserRole(UserRole.CUSTOMER);
+        return appUser;
+    }
+}
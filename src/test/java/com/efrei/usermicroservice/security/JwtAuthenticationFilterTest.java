@@ -0,0 +1,128 @@
+package com.efrei.usermicroservice.security;
+
+import com.efrei.usermicroservice.exceptions.custom.ExpiredJWTException;
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.utils.JWTUtils;
+import org.jose4j.jwt.JwtClaims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private final JWTUtils jwtUtils = mock(JWTUtils.class);
+
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtUtils);
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private final MockFilterChain filterChain = new MockFilterChain();
+
+    @BeforeEach
+    void setUp() {
+        JwtClaims claims = new JwtClaims();
+        claims.setClaim("userId", "user-1");
+        claims.setClaim("email", "filter@example.com");
+        claims.setClaim("role", "AGENT");
+        when(jwtUtils.validateJwt("valid")).thenReturn(claims);
+        when(jwtUtils.validateJwt("expired")).thenThrow(ExpiredJWTException.INSTANCE);
+        when(jwtUtils.validateJwt("forged")).thenThrow(JWTException.INVALID);
+    }
+
+    @Test
+    void validTokenExposesThePrincipal() throws Exception {
+        MockHttpServletRequest request = request("GET", "/user/user-1", "Bearer valid");
+
+        filter.doFilter(request, response, filterChain);
+
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) request.getAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE);
+        assertEquals("user-1", authenticatedUser.userId());
+        assertEquals("filter@example.com", authenticatedUser.email());
+        assertEquals(UserRole.AGENT, authenticatedUser.role());
+        assertSame(request, filterChain.getRequest());
+    }
+
+    @Test
+    void requestWithoutHeaderGoesThroughAnonymously() throws Exception {
+        MockHttpServletRequest request = request("GET", "/user/user-1", null);
+
+        filter.doFilter(request, response, filterChain);
+
+        assertNull(request.getAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE));
+        assertSame(request, filterChain.getRequest());
+        verify(jwtUtils, never()).validateJwt(anyString());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "Bearer forged,  invalid-token",
+            "Bearer expired, expired-token",
+            "Basic dXNlcjpwdw==, invalid-token",
+            "Bearer ,        invalid-token"
+    })
+    void badHeaderOnAProtectedEndpointIsAnswered401(String authorization, String errorCode) throws Exception {
+        filter.doFilter(request("GET", "/user/user-1", authorization), response, filterChain);
+
+        assertEquals(401, response.getStatus());
+        assertEquals("Bearer", response.getHeader(HttpHeaders.WWW_AUTHENTICATE));
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON_VALUE, response.getContentType());
+        String problem = response.getContentAsString(UTF_8);
+        assertTrue(problem.contains("\"code\":\"" + errorCode + "\""), problem);
+        assertNull(filterChain.getRequest(), "the chain must not run");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "POST, /login",
+            "POST, /token/refresh",
+            "GET,  /public_key",
+            "POST, /user"
+    })
+    void badHeaderIsIgnoredOnEndpointsOpenToAnonymousCallers(String method, String path) throws Exception {
+        MockHttpServletRequest request = request(method, path, "Bearer expired");
+
+        filter.doFilter(request, response, filterChain);
+
+        assertEquals(200, response.getStatus());
+        assertNull(request.getAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE));
+        assertSame(request, filterChain.getRequest());
+    }
+
+    @Test
+    void onlyPostIsOpenOnUser() throws Exception {
+        filter.doFilter(request("GET", "/user", "Bearer forged"), response, filterChain);
+
+        assertEquals(401, response.getStatus());
+        assertNull(filterChain.getRequest());
+    }
+
+    @Test
+    void contextPathIsIgnoredWhenMatchingPublicPaths() throws Exception {
+        MockHttpServletRequest request = request("POST", "/api/login", "Bearer forged");
+        request.setContextPath("/api");
+
+        filter.doFilter(request, response, filterChain);
+
+        assertSame(request, filterChain.getRequest());
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (authorization != null) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return request;
+    }
+}
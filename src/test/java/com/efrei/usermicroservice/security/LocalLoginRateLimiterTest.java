@@ -0,0 +1,90 @@
+package com.efrei.usermicroservice.security;
+
+import com.efrei.usermicroservice.exceptions.custom.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalLoginRateLimiterTest {
+
+    @Test
+    void emailBucketAllowsItsCapacityThenRejects() {
+        LocalLoginRateLimiter limiter = limiter(3, 1, 100, 100);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("alice@example.com", "10.0.0." + i);
+        }
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> limiter.acquire("alice@example.com", "10.0.0.9"));
+
+        // one attempt per minute: the next one is a full emission interval away
+        assertEquals(60, e.getRetryAfterSeconds());
+        assertTrue(e.getMessage().contains("email"), e.getMessage());
+    }
+
+    @Test
+    void emailsAreNormalizedBeforeCounting() {
+        LocalLoginRateLimiter limiter = limiter(2, 1, 100, 100);
+
+        limiter.acquire("Alice@Example.com", "10.0.0.1");
+        limiter.acquire("  alice@example.com ", "10.0.0.2");
+
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("ALICE@EXAMPLE.COM", "10.0.0.3"));
+        assertDoesNotThrow(() -> limiter.acquire("bob@example.com", "10.0.0.4"));
+    }
+
+    @Test
+    void ipBucketIsSharedAcrossEmails() {
+        LocalLoginRateLimiter limiter = limiter(100, 100, 2, 1);
+
+        limiter.acquire("a@example.com", "10.0.0.1");
+        limiter.acquire("b@example.com", "10.0.0.1");
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> limiter.acquire("c@example.com", "10.0.0.1"));
+        assertTrue(e.getMessage().contains("adresse IP"), e.getMessage());
+        assertDoesNotThrow(() -> limiter.acquire("c@example.com", "10.0.0.2"));
+    }
+
+    @Test
+    void attemptRejectedByTheIpDoesNotConsumeTheEmailBucket() {
+        LocalLoginRateLimiter limiter = limiter(1, 1, 1, 1);
+
+        limiter.acquire("a@example.com", "10.0.0.1");
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("b@example.com", "10.0.0.1"));
+
+        assertDoesNotThrow(() -> limiter.acquire("b@example.com", "10.0.0.2"));
+    }
+
+    @Test
+    void bucketRefillsOverTime() throws InterruptedException {
+        // 600 per minute: one attempt back every 100 ms
+        LocalLoginRateLimiter limiter = limiter(1, 600, 100, 100);
+
+        limiter.acquire("a@example.com", "10.0.0.1");
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("a@example.com", "10.0.0.1"));
+        Thread.sleep(150);
+
+        assertDoesNotThrow(() -> limiter.acquire("a@example.com", "10.0.0.1"));
+    }
+
+    @Test
+    void policyDerivesItsIntervalAndRetryAfter() {
+        BucketPolicy policy = BucketPolicy.of("email", 5, 5);
+
+        assertEquals(12_000, policy.emissionIntervalMillis());
+        assertEquals(60_000, policy.burstMillis());
+        assertEquals(1, policy.rejection(1).getRetryAfterSeconds());
+        assertEquals(2, policy.rejection(1001).getRetryAfterSeconds());
+        assertEquals(12, policy.rejection(60_000).getRetryAfterSeconds(), "never more than one interval");
+        assertSame(policy.rejection(1), policy.rejection(999), "rejections are preallocated");
+        assertEquals(1, BucketPolicy.of("ip", 1, 1_000_000).emissionIntervalMillis());
+    }
+
+    private static LocalLoginRateLimiter limiter(int emailCapacity, int emailRefillPerMinute,
+                                                 int ipCapacity, int ipRefillPerMinute) {
+        return new LocalLoginRateLimiter(new SimpleMeterRegistry(), emailCapacity, emailRefillPerMinute,
+                ipCapacity, ipRefillPerMinute, 1000);
+    }
+}
@@ -0,0 +1,209 @@
+package com.efrei.usermicroservice.service;
+
+import com.efrei.usermicroservice.exceptions.custom.InvalidRefreshTokenException;
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.RefreshToken;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.model.dto.LoginResponse;
+import com.efrei.usermicroservice.repository.RefreshTokenRepository;
+import com.efrei.usermicroservice.repository.UserCache;
+import com.efrei.usermicroservice.utils.AuthMetrics;
+import com.efrei.usermicroservice.utils.JWTUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenServiceTest {
+
+    private final InMemoryRefreshTokenRepository refreshTokenRepository = new InMemoryRefreshTokenRepository();
+
+    private final UserCache userCache = mock(UserCache.class);
+
+    private final JWTUtils jwtUtils = mock(JWTUtils.class);
+
+    private final TokenRevocationService tokenRevocationService = mock(TokenRevocationService.class);
+
+    private AppUser user;
+
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        user = new AppUser();
+        user.setId("user-1");
+        user.setEmail("refresh@example.com");
+        user.setUserRole(UserRole.CUSTOMER);
+        when(userCache.findById("user-1")).thenReturn(Optional.of(user));
+        when(jwtUtils.createJWT(any(), any())).thenReturn("access-token");
+        when(jwtUtils.getExpiresInSeconds()).thenReturn(900L);
+        refreshTokenService = refreshTokenService(30);
+    }
+
+    @Test
+    void refreshRotatesTheToken() {
+        String first = refreshTokenService.login(user).refreshToken();
+
+        LoginResponse refreshed = refreshTokenService.refresh(first);
+
+        assertNotEquals(first, refreshed.refreshToken());
+        assertEquals("access-token", refreshed.token());
+        assertEquals(900, refreshed.expiresIn());
+        assertDoesNotThrow(() -> refreshTokenService.refresh(refreshed.refreshToken()));
+    }
+
+    @Test
+    void onlyTheHashOfTheTokenIsStored() {
+        String refreshToken = refreshTokenService.login(user).refreshToken();
+
+        assertEquals(43, refreshToken.length(), "256 random bits, base64url without padding");
+        assertFalse(refreshTokenRepository.tokens.containsKey(refreshToken));
+        assertTrue(refreshTokenRepository.tokens.keySet().stream().allMatch(hash -> hash.matches("[0-9a-f]{64}")));
+    }
+
+    @Test
+    void replayOfAnyConsumedTokenRevokesTheFamilyAndTheAccessTokens() {
+        String first = refreshTokenService.login(user).refreshToken();
+        String second = refreshTokenService.refresh(first).refreshToken();
+        String third = refreshTokenService.refresh(second).refreshToken();
+
+        long replayedAt = Instant.now().getEpochSecond();
+        assertSame(InvalidRefreshTokenException.INVALID,
+                assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh(first)));
+
+        // covers the access tokens issued within the current second, as the last rotation may have been
+        ArgumentCaptor<Instant> issuedBefore = ArgumentCaptor.forClass(Instant.class);
+        verify(tokenRevocationService).revokeAllTokens(eq("user-1"), issuedBefore.capture());
+        assertTrue(issuedBefore.getValue().getEpochSecond() > replayedAt);
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh(third));
+    }
+
+    @Test
+    void replayLeavesTheOtherFamiliesOfTheUserAlone() {
+        String stolen = refreshTokenService.login(user).refreshToken();
+        String otherDevice = refreshTokenService.login(user).refreshToken();
+        refreshTokenService.refresh(stolen);
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh(stolen));
+
+        assertDoesNotThrow(() -> refreshTokenService.refresh(otherDevice));
+    }
+
+    @Test
+    void unknownOrExpiredTokenIsRejectedWithoutRevocation() {
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh("not-a-token"));
+
+        String expired = refreshTokenService(0).login(user).refreshToken();
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh(expired));
+
+        verify(tokenRevocationService, never()).revokeAllTokens(anyString(), any());
+    }
+
+    @Test
+    void missingTokenIsRejected() {
+        assertSame(InvalidRefreshTokenException.MISSING,
+                assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh(null)));
+        assertSame(InvalidRefreshTokenException.MISSING,
+                assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh("")));
+    }
+
+    @Test
+    void tokenOfADeletedUserIsRejected() {
+        String refreshToken = refreshTokenService.login(user).refreshToken();
+        when(userCache.findById("user-1")).thenReturn(Optional.empty());
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh(refreshToken));
+    }
+
+    @Test
+    void revokeAllEndsEverySessionOfTheUser() {
+        String first = refreshTokenService.login(user).refreshToken();
+        String second = refreshTokenService.login(user).refreshToken();
+
+        refreshTokenService.revokeAll("user-1");
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh(first));
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh(second));
+        verify(tokenRevocationService, never()).revokeAllTokens(anyString(), any());
+    }
+
+    private RefreshTokenService refreshTokenService(long ttlMinutes) {
+        return new RefreshTokenService(refreshTokenRepository, userCache, jwtUtils, tokenRevocationService,
+                new AuthMetrics(new SimpleMeterRegistry()), ttlMinutes);
+    }
+
+    /**
+     * Same semantics as the SQL statements of {@link RefreshTokenRepository}, the integration test runs the real ones.
+     */
+    private static class InMemoryRefreshTokenRepository extends RefreshTokenRepository {
+
+        private final Map<String, RefreshToken> tokens = new HashMap<>();
+
+        InMemoryRefreshTokenRepository() {
+            super(null);
+        }
+
+        @Override
+        public void insert(RefreshToken refreshToken) {
+            tokens.put(refreshToken.getTokenHash(), copy(refreshToken));
+        }
+
+        @Override
+        public Optional<RefreshToken> consume(String tokenHash, Instant now) {
+            RefreshToken refreshToken = tokens.get(tokenHash);
+            if (refreshToken == null || refreshToken.isUsed() || !refreshToken.getExpiresAt().isAfter(now)) {
+                return Optional.empty();
+            }
+            refreshToken.setUsed(true);
+            return Optional.of(copy(refreshToken));
+        }
+
+        @Override
+        public Optional<RefreshToken> findByHash(String tokenHash) {
+            return Optional.ofNullable(tokens.get(tokenHash)).map(InMemoryRefreshTokenRepository::copy);
+        }
+
+        @Override
+        public int deleteFamily(String familyId) {
+            return delete(refreshToken -> refreshToken.getFamilyId().equals(familyId));
+        }
+
+        @Override
+        public int deleteByUserId(String userId) {
+            return delete(refreshToken -> refreshToken.getUserId().equals(userId));
+        }
+
+        @Override
+        public int deleteExpired(Instant now) {
+            return delete(refreshToken -> refreshToken.getExpiresAt().isBefore(now));
+        }
+
+        private int delete(Predicate<RefreshToken> predicate) {
+            int before = tokens.size();
+            tokens.values().removeIf(predicate);
+            return before - tokens.size();
+        }
+
+        private static RefreshToken copy(RefreshToken refreshToken) {
+            RefreshToken copy = new RefreshToken();
+            copy.setTokenHash(refreshToken.getTokenHash());
+            copy.setFamilyId(refreshToken.getFamilyId());
+            copy.setUserId(refreshToken.getUserId());
+            copy.setExpiresAt(refreshToken.getExpiresAt());
+            copy.setUsed(refreshToken.isUsed());
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.efrei.usermicroservice.service;
+
+import com.efrei.usermicroservice.exceptions.custom.BadRequestException;
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import com.efrei.usermicroservice.model.dto.ImportRowResult;
+import com.efrei.usermicroservice.model.dto.ImportRowResult.Status;
+import com.efrei.usermicroservice.repository.UserJdbcRepository;
+import com.efrei.usermicroservice.repository.UserRepository;
+import com.efrei.usermicroservice.utils.PasswordHashingEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private final UserJdbcRepository userJdbcRepository = mock(UserJdbcRepository.class);
+
+    private final PasswordHashingEngine passwordHashingEngine = mock(PasswordHashingEngine.class);
+
+    private final List<AppUser> insertedUsers = new ArrayList<>();
+
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findExistingEmails(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            return emails.stream().filter("existing@example.com"::equals).toList();
+        });
+        when(passwordHashingEngine.hashAll(anyList())).thenAnswer(invocation -> {
+            List<String> passwords = invocation.getArgument(0);
+            return passwords.stream().map(password -> "hash:" + password).toList();
+        });
+        when(userJdbcRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<AppUser> appUsers = invocation.getArgument(0);
+            insertedUsers.addAll(appUsers);
+            return allTrue(appUsers.size());
+        });
+        userImportService = new UserImportService(userRepository, userJdbcRepository, new ObjectMapper(),
+                passwordHashingEngine, 2);
+    }
+
+    @Test
+    void jsonRowsAreReportedInOrder() {
+        List<ImportRowResult> report = userImportService.importJson(body("""
+                [
+                  {"role":"CUSTOMER","email":"a@example.com","password":"pa"},
+                  {"role":"PIRATE","email":"b@example.com","password":"pb"},
+                  {"role":"AGENT","email":"a@example.com","password":"pc"},
+                  {"role":"AGENT","email":"existing@example.com","password":"pd"},
+                  {"role":"AGENT","email":"e@example.com","password":"pe"}
+                ]
+                """));
+
+        assertEquals(List.of(Status.CREATED, Status.INVALID, Status.DUPLICATE_IN_REQUEST, Status.ALREADY_EXISTS,
+                Status.CREATED), report.stream().map(ImportRowResult::status).toList());
+        assertEquals(List.of(1, 2, 3, 4, 5), report.stream().map(ImportRowResult::row).toList());
+        assertEquals(List.of("a@example.com", "e@example.com"), insertedUsers.stream().map(AppUser::getEmail).toList());
+        assertEquals("hash:pe", insertedUsers.get(1).getPasswordHash());
+        assertEquals(UserRole.AGENT, insertedUsers.get(1).getUserRole());
+        assertEquals(insertedUsers.get(0).getId(), report.get(0).id());
+    }
+
+    @Test
+    void malformedJsonKeepsTheRowsBeforeItAndReportsWhereParsingStopped() {
+        List<ImportRowResult> report = userImportService.importJson(body("""
+                [
+                  {"role":"CUSTOMER","email":"a@example.com","password":"pa"},
+                  {"role":"CUSTOMER","email":"b@example.com","password":"pb"},
+                  {"role":"CUSTOMER","email":"c@example.com","password":"pc"},
+                  {"role":"CUSTOMER","email": oops}
+                ]
+                """));
+
+        assertEquals(4, report.size());
+        assertEquals(List.of(Status.CREATED, Status.CREATED, Status.CREATED),
+                report.subList(0, 3).stream().map(ImportRowResult::status).toList());
+        assertEquals(new ImportRowResult(4, null, Status.MALFORMED, null), report.get(3));
+        // the chunk of two written before the error and the pending row flushed with it
+        assertEquals(3, insertedUsers.size());
+    }
+
+    @Test
+    void truncatedJsonIsReportedAsMalformed() {
+        List<ImportRowResult> report = userImportService.importJson(body("""
+                [{"role":"CUSTOMER","email":"a@example.com","password":"pa"},
+                """));
+
+        assertEquals(List.of(Status.CREATED, Status.MALFORMED), report.stream().map(ImportRowResult::status).toList());
+    }
+
+    @Test
+    void jsonThatIsNotAnArrayOrBrokenBeforeTheFirstRowIsRejected() {
+        assertThrows(BadRequestException.class, () -> userImportService.importJson(body("{\"role\":\"AGENT\"}")));
+        assertThrows(BadRequestException.class, () -> userImportService.importJson(body("[{\"role\": oops}]")));
+        verify(userJdbcRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void csvSkipsTheHeaderAndBlankLinesAndKeepsCommasInPasswords() {
+        List<ImportRowResult> report = userImportService.importCsv(body("""
+                role, email, password
+                customer,a@example.com,pa,with,commas
+
+                agent,b@example.com
+                nobody,c@example.com,pc
+                AGENT, d@example.com ,pd
+                """));
+
+        assertEquals(List.of(Status.CREATED, Status.INVALID, Status.INVALID, Status.CREATED),
+                report.stream().map(ImportRowResult::status).toList());
+        assertEquals("b@example.com", report.get(1).email());
+        assertEquals("hash:pa,with,commas", insertedUsers.get(0).getPasswordHash());
+        assertEquals("d@example.com", insertedUsers.get(1).getEmail());
+    }
+
+    private static boolean[] allTrue(int size) {
+        boolean[] inserted = new boolean[size];
+        Arrays.fill(inserted, true);
+        return inserted;
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,39 @@
+package com.efrei.usermicroservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void addedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        IntStream.range(0, 10_000).forEach(i -> filter.add("jti:" + i));
+
+        IntStream.range(0, 10_000).forEach(i -> assertTrue(filter.mightContain("jti:" + i), "jti:" + i));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTargetAtTheExpectedSize() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("jti:" + i));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("user:" + i)).count();
+
+        assertTrue(falsePositives < 2_000, falsePositives + " false positives out of 100000");
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(0, 0.01);
+
+        assertFalse(filter.mightContain(""));
+        assertFalse(filter.mightContain("jti:1"));
+        filter.add("jti:1");
+        assertTrue(filter.mightContain("jti:1"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.exceptions.custom.ExpiredJWTException;
+import com.efrei.usermicroservice.exceptions.custom.JWTException;
+import com.efrei.usermicroservice.model.AppUser;
+import com.efrei.usermicroservice.model.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JWTUtilsTest {
+
+    @TempDir
+    Path keyDirectory;
+
+    private final TokenRevocationList tokenRevocationList = new TokenRevocationList(1000, 0.01);
+
+    private AppUser user;
+
+    @BeforeEach
+    void setUp() {
+        user = new AppUser();
+        user.setId("3f1d1c2e-6a43-4a53-9a1e-2a3c5b6d7e8f");
+        user.setEmail("jwt@example.com");
+        user.setUserRole(UserRole.AGENT);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SigningAlgorithm.class)
+    void tokenRoundTripsWithTheAlgorithmOfItsKey(SigningAlgorithm algorithm) throws Exception {
+        JWTUtils jwtUtils = jwtUtils(algorithm, 15);
+
+        String token = jwtUtils.createJWT(user);
+
+        JsonWebSignature jws = (JsonWebSignature) JsonWebSignature.fromCompactSerialization(token);
+        assertEquals(algorithm.getIdentifier(), jws.getAlgorithmHeaderValue());
+        assertEquals("k1", jws.getKeyIdHeaderValue());
+        JwtClaims claims = jwtUtils.validateJwt(token);
+        assertEquals(user.getId(), claims.getStringClaimValue("userId"));
+        assertEquals("AGENT", claims.getStringClaimValue("role"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SigningAlgorithm.class)
+    void tokenWhoseAlgorithmDoesNotMatchTheKidIsRejected(SigningAlgorithm algorithm) throws Exception {
+        JWTUtils jwtUtils = jwtUtils(algorithm, 15);
+        SigningAlgorithm otherAlgorithm = SigningAlgorithm.values()[(algorithm.ordinal() + 1) % SigningAlgorithm.values().length];
+        KeyPair otherKeyPair = TestKeys.generate(otherAlgorithm);
+        // a valid claim set, signed under the kid of the ring but with a key and algorithm it does not use
+        SigningKey forgedKey = new SigningKey("k1", otherKeyPair.getPublic(), otherKeyPair.getPrivate());
+
+        String forgedToken = forgedKey.sign(validClaims().toJson());
+
+        assertSame(JWTException.INVALID, assertThrows(JWTException.class, () -> jwtUtils.validateJwt(forgedToken)));
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        JWTUtils jwtUtils = jwtUtils(SigningAlgorithm.ES256, 15);
+        String token = jwtUtils.createJWT(user);
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + parts[1] + "." + new StringBuilder(parts[2]).reverse();
+
+        assertSame(JWTException.INVALID, assertThrows(JWTException.class, () -> jwtUtils.validateJwt(tampered)));
+    }
+
+    @Test
+    void expiredTokenIsRejectedAsExpired() {
+        JWTUtils jwtUtils = jwtUtils(SigningAlgorithm.EDDSA, -5);
+        String token = jwtUtils.createJWT(user);
+
+        assertThrows(ExpiredJWTException.class, () -> jwtUtils.validateJwt(token));
+    }
+
+    @Test
+    void revokedTokenIsRejectedEvenOnceCached() throws Exception {
+        JWTUtils jwtUtils = jwtUtils(SigningAlgorithm.RS256, 15);
+        String token = jwtUtils.createJWT(user);
+        JwtClaims claims = jwtUtils.validateJwt(token);
+
+        tokenRevocationList.revokeJti(claims.getJwtId(), Instant.now().plusSeconds(900));
+
+        assertSame(JWTException.REVOKED, assertThrows(JWTException.class, () -> jwtUtils.validateJwt(token)));
+    }
+
+    private JWTUtils jwtUtils(SigningAlgorithm algorithm, float expirationMinutes) {
+        TestKeys.write(keyDirectory, "k1", TestKeys.generate(algorithm));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuthMetrics authMetrics = new AuthMetrics(meterRegistry);
+        return new JWTUtils(TestKeys.keyRing(authMetrics, keyDirectory), new TokenValidationCache(100, 10, meterRegistry),
+                tokenRevocationList, authMetrics, "UserMicroservice", "OtherMicroservices",
+                expirationMinutes, 0);
+    }
+
+    private JwtClaims validClaims() {
+        JwtClaims claims = new JwtClaims();
+        claims.setIssuer("UserMicroservice");
+        claims.setAudience("OtherMicroservices");
+        claims.setExpirationTimeMinutesInTheFuture(15);
+        claims.setGeneratedJwtId();
+        claims.setIssuedAtToNow();
+        claims.setClaim("userId", user.getId());
+        claims.setClaim("email", user.getEmail());
+        claims.setClaim("role", UserRole.AGENT.toString());
+        return claims;
+    }
+}
@@ -0,0 +1,158 @@
+package com.efrei.usermicroservice.utils;
+
+import com.efrei.usermicroservice.exceptions.custom.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingEngineTest {
+
+    private final List<PasswordHashingEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        engines.forEach(PasswordHashingEngine::shutdown);
+    }
+
+    @Test
+    void argon2idHashIsAPhcStringThatVerifies() {
+        PasswordHashingEngine engine = argon2id(1024, 1);
+
+        String hash = engine.hash("s3cret");
+
+        assertTrue(hash.matches("\\$argon2id\\$v=19\\$m=1024,t=1,p=1\\$[A-Za-z0-9+/]{22}\\$[A-Za-z0-9+/]{43}"), hash);
+        assertTrue(engine.verify("s3cret", hash));
+        assertFalse(engine.verify("S3cret", hash));
+        assertNotEquals(hash, engine.hash("s3cret"), "each hash has its own salt");
+    }
+
+    @Test
+    void bcryptHashCarriesItsCost() {
+        PasswordHashingEngine engine = bcrypt(4);
+
+        String hash = engine.hash("s3cret");
+
+        assertTrue(hash.startsWith("$2y$04$"), hash);
+        assertTrue(engine.verify("s3cret", hash));
+        assertFalse(engine.verify("wrong", hash));
+    }
+
+    @Test
+    void hashesOfOtherAlgorithmsAndParametersKeepVerifying() {
+        PasswordHashingEngine current = argon2id(2048, 2);
+        String oldArgon2Hash = argon2id(1024, 1).hash("s3cret");
+        String bcryptHash = bcrypt(4).hash("s3cret");
+
+        assertTrue(current.verify("s3cret", oldArgon2Hash));
+        assertTrue(current.verify("s3cret", bcryptHash));
+        assertTrue(current.needsRehash(oldArgon2Hash));
+        assertTrue(current.needsRehash(bcryptHash));
+        assertFalse(current.needsRehash(current.hash("s3cret")));
+    }
+
+    @Test
+    void legacySha256HexHashVerifiesAndNeedsRehash() throws Exception {
+        PasswordHashingEngine engine = argon2id(1024, 1);
+        String legacyHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest("s3cret".getBytes(UTF_8)));
+
+        assertTrue(engine.isLegacy(legacyHash));
+        assertTrue(engine.verify("s3cret", legacyHash));
+        assertFalse(engine.verify("wrong", legacyHash));
+        assertTrue(engine.needsRehash(legacyHash));
+    }
+
+    @Test
+    void legacyHashesCostAsMuchAsTheCurrentKdf() throws Exception {
+        PasswordHashingEngine engine = argon2id(32 * 1024, 3);
+        String currentHash = engine.hash("s3cret");
+        String legacyHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest("s3cret".getBytes(UTF_8)));
+
+        long kdfNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            engine.verify("wrong", currentHash);
+            kdfNanos = Math.min(kdfNanos, System.nanoTime() - start);
+        }
+        long start = System.nanoTime();
+        engine.verify("wrong", legacyHash);
+        long legacyNanos = System.nanoTime() - start;
+
+        // a bare SHA-256 would be orders of magnitude faster, the margin only absorbs jitter
+        assertTrue(legacyNanos > kdfNanos / 2, "legacy " + legacyNanos + " ns, argon2id " + kdfNanos + " ns");
+    }
+
+    @Test
+    void corruptedHashesNeverMatch() {
+        PasswordHashingEngine engine = argon2id(1024, 1);
+        String hash = engine.hash("s3cret");
+
+        assertFalse(engine.verify("s3cret", null));
+        assertFalse(engine.verify("s3cret", hash.substring(0, hash.lastIndexOf('$'))));
+        assertFalse(engine.verify("s3cret", hash.replace("m=1024", "m=abc")));
+        assertFalse(engine.verify("s3cret", hash.replace("t=1", "x=1")));
+        assertFalse(engine.verify("s3cret", "$argon2id$v=19$m=1024,t=1,p=1$!!!$!!!"));
+    }
+
+    @Test
+    void hashAllKeepsTheOrderOfThePasswords() {
+        PasswordHashingEngine engine = engine("argon2id", 1024, 1, 4, 2, 2);
+        List<String> passwords = IntStream.range(0, 9).mapToObj(i -> "password-" + i).toList();
+
+        List<String> hashes = engine.hashAll(passwords);
+
+        assertEquals(passwords.size(), hashes.size());
+        for (int i = 0; i < passwords.size(); i++) {
+            assertTrue(engine.verify(passwords.get(i), hashes.get(i)), "row " + i);
+        }
+    }
+
+    @Test
+    void fullQueueIsRejectedRightAway() {
+        // one worker busy, one task queued: a third one has nowhere to wait
+        PasswordHashingEngine engine = engine("argon2id", 65536, 3, 4, 1, 1);
+        CompletableFuture<String> running = engine.hashAsync("first");
+        CompletableFuture<String> queued = engine.hashAsync("second");
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> engine.hashAsync("third"));
+
+        assertEquals(1, e.getRetryAfterSeconds());
+        String firstHash = running.join();
+        String secondHash = queued.join();
+        assertTrue(engine.verify("first", firstHash));
+        assertTrue(engine.verify("second", secondHash));
+    }
+
+    @Test
+    void dummyVerificationNeverMatches() {
+        PasswordHashingEngine engine = argon2id(1024, 1);
+
+        assertFalse(engine.verifyDummyAsync("anything").join());
+        assertDoesNotThrow(() -> engine.verifyDummy("anything"));
+    }
+
+    private PasswordHashingEngine argon2id(int memoryKib, int iterations) {
+        return engine("argon2id", memoryKib, iterations, 4, 2, 16);
+    }
+
+    private PasswordHashingEngine bcrypt(int cost) {
+        return engine("bcrypt", 1024, 1, cost, 2, 16);
+    }
+
+    private PasswordHashingEngine engine(String algorithm, int memoryKib, int iterations, int bcryptCost,
+                                         int threads, int queueCapacity) {
+        PasswordHashingEngine engine = new PasswordHashingEngine(new AuthMetrics(new SimpleMeterRegistry()), algorithm,
+                memoryKib, iterations, 1, bcryptCost, threads, queueCapacity, 1);
+        engines.add(engine);
+        return engine;
+    }
+}
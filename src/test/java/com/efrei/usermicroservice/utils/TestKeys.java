@@ -0,0 +1,67 @@
+package com.efrei.usermicroservice.utils;
+
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+/**
+ * Fresh key pairs of every {@link SigningAlgorithm}, written as a {@code jwt.keys.directory} so that the
+ * key ring loads them the way it loads production keys.
+ */
+public final class TestKeys {
+
+    private TestKeys() {
+    }
+
+    public static KeyPair generate(SigningAlgorithm algorithm) {
+        try {
+            KeyPairGenerator generator = switch (algorithm) {
+                case RS256 -> {
+                    KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+                    rsa.initialize(2048);
+                    yield rsa;
+                }
+                case ES256 -> {
+                    KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+                    ec.initialize(new ECGenParameterSpec("secp256r1"));
+                    yield ec;
+                }
+                case EDDSA -> KeyPairGenerator.getInstance("Ed25519");
+            };
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes {@code <kid>.public.pem} (X.509) and {@code <kid>.private.pem} (PKCS#8) into the directory.
+     */
+    public static void write(Path directory, String kid, KeyPair keyPair) {
+        try {
+            Files.writeString(directory.resolve(kid + ".public.pem"), pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+            Files.writeString(directory.resolve(kid + ".private.pem"), pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static JwtKeyRing keyRing(AuthMetrics authMetrics, Path directory) {
+        return new JwtKeyRing(authMetrics, new ClassPathResource("keys/publicKey.pem"),
+                new ClassPathResource("keys/privateKey.pem"), "k1", directory.toString(), 600, 15);
+    }
+
+    private static String pem(String type, byte[] der) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+    }
+}
@@ -0,0 +1,115 @@
+package com.efrei.usermicroservice.utils;
+
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenRevocationListTest {
+
+    private static final long NOW = Instant.parse("2026-01-01T12:00:00Z").getEpochSecond();
+
+    private final TokenRevocationList revocationList = new TokenRevocationList(100, 0.01);
+
+    @Test
+    void tokenNeverRevokedPasses() {
+        assertFalse(revocationList.isRevoked(claims("jti-1", "user-1", NOW)));
+    }
+
+    @Test
+    void revokedJtiIsRejectedAndOthersPass() {
+        revocationList.revokeJti("jti-1", Instant.ofEpochSecond(NOW + 900));
+
+        assertTrue(revocationList.isRevoked(claims("jti-1", "user-1", NOW)));
+        assertFalse(revocationList.isRevoked(claims("jti-2", "user-1", NOW)));
+    }
+
+    @Test
+    void userCutoffRevokesTokensIssuedStrictlyBeforeIt() {
+        revocationList.revokeUserTokens("user-1", NOW, Instant.ofEpochSecond(NOW + 900));
+
+        assertTrue(revocationList.isRevoked(claims("jti-1", "user-1", NOW - 1)));
+        // issued in the same second as the cutoff, e.g. a login right after a password change
+        assertFalse(revocationList.isRevoked(claims("jti-2", "user-1", NOW)));
+        assertFalse(revocationList.isRevoked(claims("jti-3", "user-2", NOW - 1)));
+    }
+
+    @Test
+    void laterCutoffWinsWhicheverOrderTheyArrive() {
+        Instant expiresAt = Instant.ofEpochSecond(NOW + 900);
+        revocationList.revokeUserTokens("user-1", NOW, expiresAt);
+        revocationList.revokeUserTokens("user-1", NOW - 60, expiresAt);
+
+        assertTrue(revocationList.isRevoked(claims("jti-1", "user-1", NOW - 30)));
+
+        revocationList.revokeUserTokens("user-1", NOW + 60, expiresAt);
+        assertTrue(revocationList.isRevoked(claims("jti-1", "user-1", NOW + 30)));
+    }
+
+    @Test
+    void tokenWithoutIssuedAtIsRevokedByAnyCutoff() {
+        revocationList.revokeUserTokens("user-1", NOW, Instant.ofEpochSecond(NOW + 900));
+        JwtClaims claims = claims("jti-1", "user-1", NOW);
+        claims.unsetClaim("iat");
+
+        assertTrue(revocationList.isRevoked(claims));
+    }
+
+    @Test
+    void malformedClaimsAreTreatedAsRevoked() {
+        revocationList.revokeUserTokens("user-1", NOW, Instant.ofEpochSecond(NOW + 900));
+        JwtClaims claims = claims("jti-1", "user-1", NOW);
+        claims.setClaim("userId", 42);
+
+        assertTrue(revocationList.isRevoked(claims));
+    }
+
+    @Test
+    void purgeDropsExpiredEntriesOnly() {
+        revocationList.revokeJti("expired", Instant.ofEpochSecond(NOW - 1));
+        revocationList.revokeJti("live", Instant.ofEpochSecond(NOW + 900));
+        revocationList.revokeUserTokens("expired-user", NOW, Instant.ofEpochSecond(NOW - 1));
+        revocationList.revokeUserTokens("live-user", NOW, Instant.ofEpochSecond(NOW + 900));
+
+        revocationList.purgeExpired(Instant.ofEpochSecond(NOW));
+
+        assertEquals(2, revocationList.size());
+        assertFalse(revocationList.isRevoked(claims("expired", "user-1", NOW)));
+        assertTrue(revocationList.isRevoked(claims("live", "user-1", NOW)));
+        assertFalse(revocationList.isRevoked(claims("jti-1", "expired-user", NOW - 1)));
+        assertTrue(revocationList.isRevoked(claims("jti-1", "live-user", NOW - 1)));
+    }
+
+    @Test
+    void rebuiltFilterKeepsEveryLiveEntryAndOnlyThem() {
+        TokenRevocationList smallList = new TokenRevocationList(1, 0.01);
+        Instant expiresAt = Instant.ofEpochSecond(NOW + 900);
+        for (int i = 0; i < 1_000; i++) {
+            smallList.revokeJti("jti-" + i, expiresAt);
+        }
+
+        smallList.purgeExpired(Instant.ofEpochSecond(NOW));
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(smallList.isRevoked(claims("jti-" + i, "user-1", NOW)), "jti-" + i);
+        }
+        long falsePositives = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (smallList.isRevoked(claims("other-" + i, "user-1", NOW))) {
+                falsePositives++;
+            }
+        }
+        assertEquals(0, falsePositives, "the maps back the filter, a filter hit alone never revokes");
+    }
+
+    private static JwtClaims claims(String jti, String userId, long issuedAt) {
+        JwtClaims claims = new JwtClaims();
+        claims.setJwtId(jti);
+        claims.setIssuedAt(NumericDate.fromSeconds(issuedAt));
+        claims.setClaim("userId", userId);
+        return claims;
+    }
+}